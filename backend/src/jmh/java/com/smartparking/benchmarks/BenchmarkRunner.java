@@ -0,0 +1,34 @@
+package com.smartparking.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs the benchmarks matching the include pattern and writes the results as JSON.
+ * Usage: BenchmarkRunner [includeRegex] [resultFile]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : ".*";
+        Path result = Paths.get(args.length > 1 ? args[1] : "target/jmh-result.json");
+        if (result.getParent() != null) {
+            Files.createDirectories(result.getParent());
+        }
+
+        Options options = new OptionsBuilder()
+                .include("com\\.smartparking\\.benchmarks\\." + include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+
+        new Runner(options).run();
+        System.out.println("JMH results written to " + result.toAbsolutePath());
+    }
+}
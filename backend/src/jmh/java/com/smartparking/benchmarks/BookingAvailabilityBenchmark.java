@@ -0,0 +1,60 @@
+package com.smartparking.benchmarks;
+
+import com.smartparking.service.BookingAvailabilityEngine;
+import com.smartparking.service.BookingCapacityLedger;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking admission and availability lookups against a populated ledger and
+ * occupancy timeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookingAvailabilityBenchmark {
+
+    private static final int SPOTS = 1000;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int bookings;
+
+    private BookingCapacityLedger ledger;
+    private BookingAvailabilityEngine engine;
+    private LocalDateTime windowStart;
+    private LocalDateTime windowEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ledger = new BookingCapacityLedger(null);
+        engine = new BookingAvailabilityEngine(null);
+        long bookingId = 0;
+        for (int[] booking : SyntheticData.bookings(bookings, SPOTS, 4L)) {
+            LocalDateTime start = SyntheticData.EPOCH.plusMinutes(booking[1]);
+            LocalDateTime end = SyntheticData.EPOCH.plusMinutes(booking[2]);
+            ledger.reserve((long) booking[0], start, end).bookedAs(++bookingId);
+            engine.add(bookingId, (long) booking[0], start, end);
+        }
+        windowStart = SyntheticData.EPOCH.plusDays(15).withHour(10);
+        windowEnd = windowStart.plusHours(2);
+    }
+
+    @Benchmark
+    public boolean ledgerAcquireRelease() {
+        BookingCapacityLedger.Reservation reservation = ledger.tryAcquire(7L, Integer.MAX_VALUE, windowStart,
+                windowEnd);
+        reservation.bookedAs(-1L);
+        ledger.release(-1L, 7L, windowStart, windowEnd);
+        return reservation != null;
+    }
+
+    @Benchmark
+    public int engineMaxOccupancy() {
+        return engine.maxOccupancy(7L, windowStart, windowEnd);
+    }
+}
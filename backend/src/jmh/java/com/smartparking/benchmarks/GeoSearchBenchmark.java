@@ -0,0 +1,73 @@
+package com.smartparking.benchmarks;
+
+import com.smartparking.dto.SpotDistance;
+import com.smartparking.entity.ParkingSpot;
+import com.smartparking.service.ParkingSpotSpatialIndex;
+import com.smartparking.util.GeoUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearby search: the distance function itself, a full scan over every spot (what
+ * the original JPQL query does row by row) and the grid index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GeoSearchBenchmark {
+
+    private static final double RADIUS_KM = 5;
+
+    @Param({ "1000", "100000", "1000000" })
+    public int spots;
+
+    private double[] lats;
+    private double[] lngs;
+    private ParkingSpotSpatialIndex index;
+    private double queryLat;
+    private double queryLng;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ParkingSpot> data = SyntheticData.spots(spots, 2L);
+        lats = new double[spots];
+        lngs = new double[spots];
+        index = new ParkingSpotSpatialIndex(null, 0.05);
+        for (int i = 0; i < spots; i++) {
+            ParkingSpot spot = data.get(i);
+            lats[i] = spot.getLatitude();
+            lngs[i] = spot.getLongitude();
+            index.put(spot.getId(), lats[i], lngs[i]);
+        }
+        Random random = new Random(3L);
+        queryLat = SyntheticData.BASE_LAT + random.nextDouble() * SyntheticData.SPREAD_DEG;
+        queryLng = SyntheticData.BASE_LNG + random.nextDouble() * SyntheticData.SPREAD_DEG;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double distance() {
+        return GeoUtil.distanceKm(queryLat, queryLng, lats[0], lngs[0]);
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (int i = 0; i < lats.length; i++) {
+            if (GeoUtil.distanceKm(queryLat, queryLng, lats[i], lngs[i]) <= RADIUS_KM) {
+                blackhole.consume(i);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<SpotDistance> gridIndex() {
+        return index.findWithin(queryLat, queryLng, RADIUS_KM);
+    }
+}
@@ -0,0 +1,39 @@
+package com.smartparking.benchmarks;
+
+import ch.qos.logback.classic.Logger;
+import com.smartparking.util.GoogleMapsUtil;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinate extraction for the link shapes providers paste. Shortened links are
+ * left out because they need the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoogleMapsBenchmark {
+
+    @Param({
+            "https://www.google.com/maps/place/Some+Place/@12.3456,78.9101,15z/data=...",
+            "https://maps.google.com/?q=12.3456,78.9101",
+            "https://www.google.com/maps/place/Invalid"
+    })
+    public String url;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Measure parsing, not console output
+        ((Logger) LoggerFactory.getLogger(GoogleMapsUtil.class)).setLevel(ch.qos.logback.classic.Level.OFF);
+    }
+
+    @Benchmark
+    public double[] getCoordinates() {
+        return GoogleMapsUtil.getCoordinates(url);
+    }
+}
@@ -0,0 +1,53 @@
+package com.smartparking.benchmarks;
+
+import com.smartparking.entity.Role;
+import com.smartparking.entity.User;
+import com.smartparking.security.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token parsing done by the authentication filter on every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET = "dGVzdC1zZWNyZXQta2V5LWZvci1zbWFydC1wYXJraW5nLXVuaXQtdGVzdHMtb25seQ==";
+
+    private JwtTokenProvider provider;
+    private User user;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        provider = new JwtTokenProvider(SECRET, 86400000L, 10000, 60000L);
+        user = User.builder().email("user@example.com").role(Role.USER).build();
+        token = provider.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return provider.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean extractAndValidate() {
+        // What JwtAuthenticationFilter does per request
+        Claims claims = provider.extractAllClaims(token);
+        return claims.getSubject() != null && provider.isTokenValid(claims, user);
+    }
+
+    @Benchmark
+    public boolean extractAndValidateUncached() {
+        // Key setup plus full signature verification: roughly what every call cost before caching
+        Claims claims = new JwtTokenProvider(SECRET, 86400000L, 1, 60000L).extractAllClaims(token);
+        return provider.isTokenValid(claims, user);
+    }
+}
@@ -0,0 +1,66 @@
+package com.smartparking.benchmarks;
+
+import com.smartparking.dto.ParkingSpotResponseDTO;
+import com.smartparking.entity.ParkingSpot;
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.repository.ParkingSpotRepository;
+import com.smartparking.repository.PaymentRepository;
+import com.smartparking.repository.ProviderRepository;
+import com.smartparking.service.AdminStatsService;
+import com.smartparking.service.BookingAvailabilityEngine;
+import com.smartparking.service.BookingCapacityLedger;
+import com.smartparking.service.BookingRollupService;
+import com.smartparking.service.ImageStorageService;
+import com.smartparking.service.NotificationOutboxService;
+import com.smartparking.service.ParkingSpotService;
+import com.smartparking.service.ParkingSpotSpatialIndex;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a result list into response DTOs (ParkingSpotService.mapToDTO)
+ * through the public list method, with the repository replaced by a fixed list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParkingSpotMappingBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int spots;
+
+    private ParkingSpotService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ParkingSpot> data = SyntheticData.spots(spots, 1L);
+        ParkingSpotRepository repository = Mockito.mock(ParkingSpotRepository.class);
+        Mockito.when(repository.findByStatus(ParkingSpot.ParkingStatus.ACTIVE)).thenReturn(data);
+
+        // Only the repository is used by the list path; the other collaborators are inert mocks
+        service = new ParkingSpotService(repository,
+                Mockito.mock(ProviderRepository.class),
+                Mockito.mock(ImageStorageService.class),
+                Mockito.mock(BookingRepository.class),
+                Mockito.mock(PaymentRepository.class),
+                Mockito.mock(NotificationOutboxService.class),
+                Mockito.mock(AdminStatsService.class),
+                Mockito.mock(BookingRollupService.class),
+                Mockito.mock(ParkingSpotSpatialIndex.class),
+                Mockito.mock(BookingCapacityLedger.class),
+                Mockito.mock(BookingAvailabilityEngine.class),
+                Mockito.mock(TransactionTemplate.class));
+    }
+
+    @Benchmark
+    public List<ParkingSpotResponseDTO> mapAllSpots() {
+        return service.getAllParkingSpots();
+    }
+}
@@ -0,0 +1,87 @@
+package com.smartparking.benchmarks;
+
+import com.smartparking.entity.ParkingSpot;
+import com.smartparking.entity.Provider;
+import com.smartparking.entity.Role;
+import com.smartparking.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic spot and booking datasets shared by the benchmarks.
+ */
+final class SyntheticData {
+
+    // Spots are spread over roughly the Bengaluru metro area
+    static final double BASE_LAT = 12.80;
+    static final double BASE_LNG = 77.45;
+    static final double SPREAD_DEG = 0.40;
+
+    static final LocalDateTime EPOCH = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    private SyntheticData() {
+    }
+
+    static List<ParkingSpot> spots(int count, long seed) {
+        Random random = new Random(seed);
+        List<Provider> providers = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, count / 20); i++) {
+            User owner = User.builder()
+                    .id((long) i)
+                    .name("Owner " + i)
+                    .email("owner" + i + "@example.com")
+                    .phoneNumber("98450" + String.format("%05d", i % 100000))
+                    .role(Role.PROVIDER)
+                    .build();
+            providers.add(Provider.builder().id((long) i).user(owner).fullName(owner.getName()).build());
+        }
+
+        List<ParkingSpot> spots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> images = new ArrayList<>();
+            images.add("/uploads/parking-spots/" + i + "/images/area.jpg");
+            images.add(i % 3 == 0
+                    ? "D:\\Infosys\\upload\\parking-spots\\" + i + "\\images\\gate.jpg"
+                    : "/uploads/parking-spots/" + i + "/images/gate.jpg");
+            spots.add(ParkingSpot.builder()
+                    .id((long) i + 1)
+                    .provider(providers.get(i % providers.size()))
+                    .name("Spot " + i)
+                    .description("Covered parking near metro station " + i)
+                    .state("Karnataka")
+                    .district("Bengaluru")
+                    .address(i + " MG Road")
+                    .pincode("560001")
+                    .latitude(BASE_LAT + random.nextDouble() * SPREAD_DEG)
+                    .longitude(BASE_LNG + random.nextDouble() * SPREAD_DEG)
+                    .totalCapacity(5 + random.nextInt(50))
+                    .pricePerHour(20.0 + random.nextInt(80))
+                    .covered(random.nextBoolean())
+                    .cctv(random.nextBoolean())
+                    .vehicleTypes(Set.of("CAR", "BIKE"))
+                    .parkingType("OPEN")
+                    .imageUrls(images)
+                    .status(ParkingSpot.ParkingStatus.ACTIVE)
+                    .build());
+        }
+        return spots;
+    }
+
+    /**
+     * Booking windows as {spotIndex, startMinute, endMinute} relative to {@link #EPOCH},
+     * spread over 30 days and the given number of spots.
+     */
+    static int[][] bookings(int count, int spotCount, long seed) {
+        Random random = new Random(seed);
+        int[][] bookings = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int start = random.nextInt(30 * 24 * 60);
+            bookings[i] = new int[] { random.nextInt(spotCount), start, start + 30 + random.nextInt(6 * 60) };
+        }
+        return bookings;
+    }
+}
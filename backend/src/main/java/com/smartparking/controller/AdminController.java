@@ -21,10 +21,13 @@ import java.util.Map;
 public class AdminController {
 
     private final UserRepository userRepository;
-    private final com.smartparking.repository.BookingRepository bookingRepository;
     private final ParkingSpotRepository parkingSpotRepository;
     private final ProviderRepository providerRepository;
     private final ParkingProviderApplicationRepository parkingProviderApplicationRepository;
+    private final com.smartparking.service.ParkingSpotSpatialIndex spatialIndex;
+    private final com.smartparking.security.CustomUserDetailsService userDetailsService;
+    private final com.smartparking.service.AdminStatsService adminStatsService;
+    private final com.smartparking.service.BookingRollupService rollupService;
 
     @GetMapping("/provider-applications")
     public ResponseEntity<List<Map<String, Object>>> getPendingApplications() {
@@ -114,24 +117,8 @@ public class AdminController {
         map.put("upiId", app.getUpiId());
         map.put("gstNumber", app.getGstNumber());
         map.put("panNumber", app.getPanNumber());
-        // Sanitize image URLs for frontend
-        List<String> sanitizedImages = app.getImageUrls().stream()
-                .map(url -> {
-                    if (url.startsWith("D:\\Infosys\\upload")) {
-                        // Convert absolute path to web path
-                        String relative = url.substring("D:\\Infosys\\upload".length());
-                        return "/uploads" + relative.replace("\\", "/");
-                    } else if (url.startsWith("/api/images")) {
-                        return url; // Keep existing API style if present
-                    } else if (!url.startsWith("/uploads") && !url.startsWith("http")) {
-                        // Assume it's a relative path from uploads root if not absolute
-                        return "/uploads/" + url;
-                    }
-                    return url;
-                })
-                .collect(java.util.stream.Collectors.toList());
-
-        map.put("imageUrls", sanitizedImages);
+        // Stored URLs are canonical (see ImageUrlMigrationService)
+        map.put("imageUrls", app.getImageUrls());
 
         return ResponseEntity.ok(map);
     }
@@ -154,19 +141,26 @@ public class AdminController {
             // 1️⃣ Mark application approved
             application.setStatus(ProviderApplication.ApplicationStatus.APPROVED);
             parkingProviderApplicationRepository.save(application);
+            adminStatsService.onApplicationStatusChanged(ProviderApplication.ApplicationStatus.PENDING,
+                    ProviderApplication.ApplicationStatus.APPROVED);
 
             // 2️⃣ Upgrade user role
             User user = application.getUser();
             if (user.getRole() != Role.PROVIDER) {
+                adminStatsService.onRoleChanged(user.getRole(), Role.PROVIDER);
                 user.setRole(Role.PROVIDER);
                 userRepository.save(user);
+                userDetailsService.evict(user.getEmail());
             }
             Provider provider = Provider.fromApplication(application);
             provider = providerRepository.save(provider);
 
             ParkingSpot spot = ParkingSpot.fromApplication(application, provider);
+            spot.getImageUrls().replaceAll(com.smartparking.service.ImageStorageService::normalizeUrl);
             spot.setStatus(ParkingSpot.ParkingStatus.ACTIVE);
             parkingSpotRepository.save(spot);
+            adminStatsService.onSpotCreated();
+            spatialIndex.sync(spot);
 
             return ResponseEntity.ok(
                     Map.of("message", "Application approved successfully"));
@@ -178,6 +172,8 @@ public class AdminController {
             application.setRejectionDate(java.time.LocalDateTime.now());
             application.setStatus(ProviderApplication.ApplicationStatus.REJECTED);
             parkingProviderApplicationRepository.save(application);
+            adminStatsService.onApplicationStatusChanged(ProviderApplication.ApplicationStatus.PENDING,
+                    ProviderApplication.ApplicationStatus.REJECTED);
 
             return ResponseEntity.ok(
                     Map.of("message", "Application rejected successfully"));
@@ -188,30 +184,12 @@ public class AdminController {
 
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getAdminStats() {
-        System.out.println("Fetching Admin Stats...");
-        long totalUsers = userRepository.countByRole(com.smartparking.entity.Role.USER);
-        long totalProviders = userRepository.countByRole(com.smartparking.entity.Role.PROVIDER);
-        long totalSpots = parkingSpotRepository.count();
-        long activeBookings = bookingRepository
-                .countByStatus(com.smartparking.entity.Booking.BookingStatus.CONFIRMED);
-        long cancelledBookings = bookingRepository
-                .countByStatus(com.smartparking.entity.Booking.BookingStatus.CANCELLED);
-
-        Double revenue = bookingRepository.calculateTotalRevenue();
-
-        long pendingApps = providerRepository
-                .findByVerificationStatus(Provider.VerificationStatus.PENDING).size();
-        List<String> alerts = new java.util.ArrayList<>();
-        if (pendingApps > 0)
-            alerts.add(pendingApps + " pending provider applications");
-
-        return ResponseEntity.ok(Map.of(
-                "totalUsers", totalUsers,
-                "totalProviders", totalProviders,
-                "totalSpots", totalSpots,
-                "activeBookings", activeBookings,
-                "cancelledBookings", cancelledBookings,
-                "totalRevenue", revenue != null ? revenue : 0.0,
-                "systemAlerts", alerts));
+        // Served from in-memory counters; see AdminStatsService
+        return ResponseEntity.ok(adminStatsService.getStats());
+    }
+
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups() {
+        return ResponseEntity.ok(Map.of("bookingsScanned", rollupService.rebuild()));
     }
 }
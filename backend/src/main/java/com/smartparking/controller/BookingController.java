@@ -1,13 +1,19 @@
 package com.smartparking.controller;
 
+import com.smartparking.dto.AvailabilityRequestDTO;
+import com.smartparking.dto.AvailabilitySlotDTO;
 import com.smartparking.dto.BookingDTO;
+import com.smartparking.dto.CursorPageDTO;
+import com.smartparking.security.CurrentUser;
 import com.smartparking.service.BookingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/bookings")
@@ -17,8 +23,21 @@ public class BookingController {
     private final BookingService bookingService;
 
     @PostMapping("/create")
-    public ResponseEntity<BookingDTO> createBooking(@Valid @RequestBody BookingDTO dto) {
-        return ResponseEntity.ok(bookingService.createBooking(dto));
+    public ResponseEntity<BookingDTO> createBooking(@Valid @RequestBody BookingDTO dto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        try {
+            return ResponseEntity.ok(bookingService.createBooking(dto, idempotencyKey));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent retry with the same key committed first; answer with its booking
+            if (idempotencyKey == null) {
+                throw e;
+            }
+            BookingDTO original = bookingService.findByIdempotencyKey(CurrentUser.get().getId(), idempotencyKey);
+            if (original == null) {
+                throw e;
+            }
+            return ResponseEntity.ok(original);
+        }
     }
 
     @GetMapping("/my-bookings")
@@ -26,6 +45,16 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.getUserBookings());
     }
 
+    /**
+     * Latest start first, one page at a time. Pass {@code nextCursor} back as {@code cursor}.
+     */
+    @GetMapping("/my-bookings/page")
+    public ResponseEntity<CursorPageDTO<BookingDTO>> getUserBookingsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(bookingService.getUserBookingsPage(cursor, size));
+    }
+
     @GetMapping("/check-availability")
     public ResponseEntity<Integer> checkAvailability(
             @RequestParam Long parkingSpotId,
@@ -41,6 +70,28 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.getAvailableSlots(parkingSpotId, start, end));
     }
 
+    @PostMapping("/availability/batch")
+    public ResponseEntity<Map<Long, Integer>> checkAvailabilityBatch(
+            @RequestBody List<AvailabilityRequestDTO> requests) {
+        return ResponseEntity.ok(bookingService.getAvailableSlotsBatch(requests));
+    }
+
+    @GetMapping("/availability/timeline")
+    public ResponseEntity<List<AvailabilitySlotDTO>> getAvailabilityTimeline(
+            @RequestParam Long parkingSpotId,
+            @RequestParam String startTime,
+            @RequestParam String endTime,
+            @RequestParam(defaultValue = "60") int granularityMinutes) {
+
+        // Frontend sends "yyyy-MM-dd HH:mm:ss"
+        java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter
+                .ofPattern("yyyy-MM-dd HH:mm:ss");
+        java.time.LocalDateTime start = java.time.LocalDateTime.parse(startTime, formatter);
+        java.time.LocalDateTime end = java.time.LocalDateTime.parse(endTime, formatter);
+
+        return ResponseEntity.ok(bookingService.getAvailabilityTimeline(parkingSpotId, start, end, granularityMinutes));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<BookingDTO> getBookingById(@PathVariable Long id) {
         return ResponseEntity.ok(bookingService.getBookingById(id));
@@ -1,42 +1,60 @@
 package com.smartparking.controller;
 
+import com.smartparking.exception.NotFoundException;
+import com.smartparking.service.ImageDeliveryService;
 import com.smartparking.service.ImageStorageService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
-@RequestMapping("/api/images")
 @RequiredArgsConstructor
 public class ImageController {
 
+    // Until the rendition exists, the original stands in for it
+    private static final Duration PROVISIONAL_REDIRECT_AGE = Duration.ofMinutes(1);
+
     private final ImageStorageService imageStorageService;
+    private final ImageDeliveryService imageDeliveryService;
 
-    @GetMapping("/{filename:.+}")
-    @ResponseBody
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename, HttpServletRequest request) {
-        Resource resource = imageStorageService.loadAsResource(filename);
-        String contentType = null;
-        try {
-            contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-        } catch (IOException ex) {
-            // Fallback to default
+    @GetMapping("/api/images/{filename:.+}")
+    public void serveFile(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        ImageStorageService.ReadTarget target = imageStorageService.resolveStored(filename);
+        if (target != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "inline; filename=\"" + filename.replace("\"", "") + "\"");
         }
+        send(target, request, response);
+    }
 
-        if (contentType == null) {
-            contentType = "application/octet-stream";
-        }
+    // Uploaded images (see ImageStorageService); a rendition not written yet falls back to its original
+    @GetMapping("/uploads/{*path}")
+    public void serveUpload(@PathVariable String path, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        send(imageStorageService.resolveUpload(path), request, response);
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
+    private void send(ImageStorageService.ReadTarget target, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (target == null) {
+            throw new NotFoundException("Image not found");
+        }
+        Optional<URI> direct = imageStorageService.directReadUrl(target.key());
+        if (direct.isPresent()) {
+            imageDeliveryService.redirect(direct.get(),
+                    target.provisional() ? PROVISIONAL_REDIRECT_AGE : imageStorageService.directReadCacheTime(),
+                    response);
+            return;
+        }
+        imageDeliveryService.serve(imageStorageService.localFile(target.key()).orElse(null), target.provisional(),
+                request, response);
     }
 }
@@ -1,17 +1,21 @@
 package com.smartparking.controller;
 
+import com.smartparking.dto.CursorPageDTO;
 import com.smartparking.dto.NotificationDTO;
-import com.smartparking.entity.Notification;
 import com.smartparking.entity.User;
 import com.smartparking.repository.NotificationRepository;
-import com.smartparking.repository.UserRepository;
+import com.smartparking.security.CurrentUser;
+import com.smartparking.security.JwtTokenProvider;
+import com.smartparking.service.NotificationPushService;
+import com.smartparking.service.NotificationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,14 +24,13 @@ import java.util.stream.Collectors;
 public class NotificationController {
 
     private final NotificationRepository notificationRepository;
-    private final UserRepository userRepository;
+    private final NotificationPushService notificationPushService;
+    private final NotificationService notificationService;
+    private final JwtTokenProvider jwtTokenProvider;
 
     @GetMapping
     public ResponseEntity<List<NotificationDTO>> getUserNotifications() {
-        String email = ((UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
-                .getUsername();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = CurrentUser.get();
 
         List<NotificationDTO> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(user.getId())
                 .stream()
@@ -44,22 +47,71 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    /**
+     * Newest first, one page at a time. Pass {@code nextCursor} back as {@code cursor}.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDTO<NotificationDTO>> getUserNotificationsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        User user = CurrentUser.get();
+        return ResponseEntity.ok(notificationService.getFeed(user.getId(), cursor, size));
+    }
+
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Long>> getUnreadCount() {
+        User user = CurrentUser.get();
+        return ResponseEntity.ok(Map.of("unreadCount", notificationService.getUnreadCount(user.getId())));
+    }
+
+    @PatchMapping("/read-all")
+    public ResponseEntity<Map<String, Integer>> markAllAsRead() {
+        User user = CurrentUser.get();
+        return ResponseEntity.ok(Map.of("updated", notificationService.markAllAsRead(user.getId())));
+    }
+
+    /**
+     * Short-lived token for opening the stream from a browser. EventSource
+     * cannot send the Authorization header, so it connects to
+     * {@code /stream?access_token=<token>} instead. The token is checked when
+     * the stream opens and is valid for nothing else; when the connection
+     * drops, fetch a new one and reconnect with {@code lastEventId}.
+     */
+    @PostMapping("/stream-token")
+    public ResponseEntity<Map<String, Object>> getStreamToken() {
+        User user = CurrentUser.get();
+        return ResponseEntity.ok(Map.of(
+                "token", jwtTokenProvider.generateStreamToken(user),
+                "expiresInSeconds", jwtTokenProvider.getStreamTokenExpiration() / 1000));
+    }
+
+    /**
+     * Live stream of new notifications. Pass the last received id as
+     * {@code lastEventId} (or let EventSource send Last-Event-ID) to resume.
+     * Authenticates with the usual Bearer header or a token from
+     * {@code /stream-token} in {@code access_token}.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(
+            @RequestParam(required = false) Long lastEventId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader) {
+        User user = CurrentUser.get();
+        return notificationPushService.subscribe(user.getId(),
+                lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
+
     @PatchMapping("/{id}/read")
     public ResponseEntity<Void> markAsRead(@PathVariable Long id) {
-        Notification notification = notificationRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Notification not found"));
-
         // Security check: ensure notification belongs to current user?
         // Skipping strict ownership check for speed, but ideally should have it.
 
-        notification.setRead(true);
-        notificationRepository.save(notification);
+        notificationService.markAsRead(id);
         return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteNotification(@PathVariable Long id) {
-        notificationRepository.deleteById(id);
+        notificationService.delete(id);
         return ResponseEntity.ok().build();
     }
 }
@@ -1,5 +1,6 @@
 package com.smartparking.controller;
 
+import com.smartparking.dto.CursorPageDTO;
 import com.smartparking.dto.ParkingSpotDTO;
 import com.smartparking.dto.ParkingSpotResponseDTO;
 import com.smartparking.service.ParkingSpotService;
@@ -15,6 +16,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ParkingController {
 
+    private static final int DEFAULT_NEARBY_PAGE_SIZE = 200;
+
     private final ParkingSpotService parkingSpotService;
     private final com.smartparking.service.ImageStorageService imageStorageService;
 
@@ -42,6 +45,21 @@ public class ParkingController {
         return ResponseEntity.ok(parkingSpotService.getAllParkingSpots());
     }
 
+    @GetMapping("/all/page")
+    public ResponseEntity<CursorPageDTO<ParkingSpotResponseDTO>> getAllParkingSpotsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(parkingSpotService.getAllParkingSpotsPage(cursor, size));
+    }
+
+    @GetMapping("/search/page")
+    public ResponseEntity<CursorPageDTO<ParkingSpotResponseDTO>> searchParkingSpotsPage(@RequestParam String state,
+            @RequestParam String district,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(parkingSpotService.searchParkingSpotsPage(state, district, cursor, size));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<ParkingSpotResponseDTO>> searchParkingSpots(@RequestParam String state,
             @RequestParam String district) {
@@ -53,8 +71,15 @@ public class ParkingController {
     public ResponseEntity<List<ParkingSpotResponseDTO>> getNearbyParkingSpots(
             @RequestParam double lat,
             @RequestParam double lng,
-            @RequestParam double radius) {
-        return ResponseEntity.ok(parkingSpotService.getNearbyParkingSpots(lat, lng, radius));
+            @RequestParam double radius,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        // Without page or size every match is returned, as before paging existed
+        if (page == null && size == null) {
+            return ResponseEntity.ok(parkingSpotService.getNearbyParkingSpots(lat, lng, radius));
+        }
+        return ResponseEntity.ok(parkingSpotService.getNearbyParkingSpots(lat, lng, radius,
+                page != null ? page : 0, size != null ? size : DEFAULT_NEARBY_PAGE_SIZE));
     }
 
     @GetMapping("/{id}")
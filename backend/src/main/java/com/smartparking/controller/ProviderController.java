@@ -1,18 +1,30 @@
 package com.smartparking.controller;
 
 import com.smartparking.dto.*;
+import com.smartparking.entity.BookingRollup;
+import com.smartparking.entity.Booking;
 import com.smartparking.entity.Provider;
 import com.smartparking.entity.User;
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.repository.ParkingSpotRepository;
 import com.smartparking.repository.ProviderRepository;
 import com.smartparking.repository.UserRepository;
+import com.smartparking.security.CurrentUser;
+import com.smartparking.service.BookingExportService;
+import com.smartparking.service.BookingRollupService;
 import com.smartparking.service.BookingService;
 import com.smartparking.service.ParkingSpotService;
 import com.smartparking.service.ProviderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,7 +36,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 @RestController
 @RequestMapping("/api/provider")
 @RequiredArgsConstructor
-@org.springframework.transaction.annotation.Transactional
 public class ProviderController {
 
     private final ParkingSpotService parkingSpotService;
@@ -32,6 +43,10 @@ public class ProviderController {
     private final UserRepository userRepository;
     private final ProviderRepository providerRepository;
     private final ProviderService providerService;
+    private final BookingRollupService rollupService;
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingExportService bookingExportService;
 
     @GetMapping("/parkings")
     public ResponseEntity<List<ParkingSpotResponseDTO>> getMyParkingSpots(@RequestParam String email) {
@@ -75,6 +90,36 @@ public class ProviderController {
         return ResponseEntity.ok(bookingService.getBookingsByOwner(user.getId()));
     }
 
+    /**
+     * Bookings on the caller's spots, latest start first. Pass {@code nextCursor} back as {@code cursor}.
+     */
+    @GetMapping("/bookings/page")
+    public ResponseEntity<CursorPageDTO<BookingDTO>> getMySpotBookingsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(bookingService.getBookingsByOwnerPage(CurrentUser.get().getId(), cursor, size));
+    }
+
+    @GetMapping("/bookings/export")
+    public ResponseEntity<StreamingResponseBody> exportMySpotBookings(
+            @RequestParam(defaultValue = "csv") String format) {
+        BookingExportService.Format exportFormat;
+        try {
+            exportFormat = BookingExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unsupported export format: " + format);
+        }
+        Long ownerId = CurrentUser.get().getId();
+
+        // Written on an async thread straight to the response; see BookingExportService
+        StreamingResponseBody body = out -> bookingExportService.export(ownerId, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"bookings." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboardStats(@RequestParam String email) {
         System.out.println("Fetching Provider Dashboard for: " + email);
@@ -87,23 +132,38 @@ public class ProviderController {
                     .ok(Map.of("totalParkings", 0, "activeBookings", 0, "todayEarnings", 0, "monthlyEarnings", 0));
         }
 
-        List<ParkingSpotResponseDTO> spots = parkingSpotService.getParkingSpotsByOwner(provider.get().getId());
-        List<BookingDTO> bookings = bookingService.getBookingsByOwner(user.getId()); // This might need fix
+        Long providerId = provider.get().getId();
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        LocalDateTime monthStart = today.withDayOfMonth(1);
 
-        double todayEarnings = 0; // consistent with frontend placeholder
-        double monthlyEarnings = calculateTotalEarnings(bookings);
+        // Earnings are read from the daily rollups, net of cancellations
+        double todayEarnings = rollupService
+                .getProviderTotals(providerId, BookingRollup.Granularity.DAY, today, today.plusDays(1))
+                .getRevenue();
+        double monthlyEarnings = rollupService
+                .getProviderTotals(providerId, BookingRollup.Granularity.DAY, monthStart, monthStart.plusMonths(1))
+                .getRevenue();
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalParkings", spots.size());
-        stats.put("activeBookings", bookings.stream().filter(b -> "CONFIRMED".equals(b.getStatus())).count());
+        stats.put("totalParkings", parkingSpotRepository.countByProviderId(providerId));
+        stats.put("activeBookings",
+                bookingRepository.countByParkingSpot_Provider_IdAndStatus(providerId, Booking.BookingStatus.CONFIRMED));
         stats.put("todayEarnings", todayEarnings);
         stats.put("monthlyEarnings", monthlyEarnings);
 
         return ResponseEntity.ok(stats);
     }
 
-    private double calculateTotalEarnings(List<BookingDTO> bookings) {
-        return bookings.stream().mapToDouble(BookingDTO::getTotalPrice).sum();
+    @GetMapping("/dashboard/range")
+    public ResponseEntity<List<RollupDTO>> getDashboardRange(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @RequestParam(defaultValue = "DAY") BookingRollup.Granularity granularity) {
+        Optional<Provider> provider = providerRepository.findByUser(CurrentUser.get());
+        if (provider.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok(rollupService.getProviderSeries(provider.get().getId(), granularity, from, to));
     }
 
     @PostMapping(value = "/add", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
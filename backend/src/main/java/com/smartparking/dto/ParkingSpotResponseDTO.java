@@ -28,6 +28,8 @@ public class ParkingSpotResponseDTO {
     private String googleMapsLink;
     private Double latitude;
     private Double longitude;
+    // Only set for nearby searches
+    private Double distanceKm;
 
     // ===== Parking Features =====
     private Set<String> vehicleTypes;
@@ -44,7 +46,10 @@ public class ParkingSpotResponseDTO {
     private String parkingType;
 
     // ===== Images =====
+    // Full-size originals, with renditions for cards and detail views in the same order
     private List<String> imageUrls;
+    private List<String> thumbnailUrls;
+    private List<String> mediumImageUrls;
 
     // ===== System Fields =====
     private ParkingSpot.ParkingStatus status;
@@ -0,0 +1,14 @@
+package com.smartparking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A parking spot id together with its distance (km) from a search origin.
+ */
+@Getter
+@AllArgsConstructor
+public class SpotDistance {
+    private Long spotId;
+    private Double distanceKm;
+}
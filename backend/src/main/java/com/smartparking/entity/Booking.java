@@ -12,7 +12,15 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_bookings_user_idempotency", columnNames = { "user_id", "idempotency_key" })
+}, indexes = {
+        @Index(name = "idx_bookings_user_start", columnList = "user_id, start_time"),
+        // Covers the overlap count and the spot side of the provider history
+        @Index(name = "idx_bookings_spot_status_time", columnList = "parking_spot_id, status, start_time, end_time"),
+        // Lifecycle sweep for CONFIRMED bookings past their end time
+        @Index(name = "idx_bookings_status_end", columnList = "status, end_time")
+})
 public class Booking {
 
     @Id
@@ -45,4 +53,8 @@ public class Booking {
 
     @org.hibernate.annotations.CreationTimestamp
     private LocalDateTime createdAt;
+
+    // Client-supplied Idempotency-Key of the request that created this booking
+    @Column(length = 64)
+    private String idempotencyKey;
 }
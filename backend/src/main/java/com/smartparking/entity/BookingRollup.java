@@ -0,0 +1,58 @@
+package com.smartparking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Booking totals of one spot over one hour or one day. Provider figures are the
+ * sum over the provider's spots, read through the provider index.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "booking_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_booking_rollups_bucket", columnNames = { "granularity", "parking_spot_id",
+                "bucket_start" })
+}, indexes = {
+        @Index(name = "idx_booking_rollups_provider", columnList = "provider_id, granularity, bucket_start")
+})
+public class BookingRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Granularity granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private Long parkingSpotId;
+
+    private Long providerId;
+
+    // Net of cancellations, attributed to the bucket the booking starts in
+    private double revenue;
+
+    private long bookings;
+
+    private long cancellations;
+
+    // Minutes booked (and not cancelled) that fall inside the bucket
+    private long occupiedMinutes;
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+}
@@ -0,0 +1,65 @@
+package com.smartparking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A batch of notifications waiting to be delivered. Written in the same transaction
+ * as the change that caused it and expanded into {@link Notification} rows later by
+ * the outbox worker, so a commit never loses its notifications and the request
+ * never waits for them.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_status_id", columnList = "status, id")
+})
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String title;
+
+    // success, info, completed, danger
+    private String type;
+
+    // JSON array of {"userId": .., "message": ..}
+    @Lob
+    @Column(nullable = false)
+    private String recipients;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+
+    private int attempts;
+
+    private String lastError;
+
+    // Not retried before this; null until the row first fails
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+
+    public enum OutboxStatus {
+        PENDING,
+        SENT,
+        FAILED
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
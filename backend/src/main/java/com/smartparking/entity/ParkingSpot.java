@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.HashSet;
 import java.util.List;
@@ -17,7 +18,9 @@ import java.util.ArrayList;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "parking_spots")
+@Table(name = "parking_spots", indexes = {
+        @Index(name = "idx_parking_spots_status_lat_lng", columnList = "status, latitude, longitude")
+})
 public class ParkingSpot {
 
     @Id
@@ -58,7 +61,9 @@ public class ParkingSpot {
     private boolean evCharging;
 
     // Vehicles Allowed
+    // Batched so list views initialize these for many spots with one query
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(
             name = "parking_spot_vehicles",
             joinColumns = @JoinColumn(name = "parking_spot_id")
@@ -71,6 +76,7 @@ public class ParkingSpot {
 
     // Images (URLs / paths only)
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(
             name = "parking_spot_images",
             joinColumns = @JoinColumn(name = "parking_spot_id")
@@ -5,13 +5,50 @@ import com.smartparking.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-        List<Booking> findByUserId(Long userId);
+        String EXPORT_FETCH_SIZE = "500";
 
         List<Booking> findByParkingSpotId(Long parkingSpotId);
 
-        List<Booking> findByParkingSpot_Provider_User_Id(Long userId);
+        @org.springframework.data.jpa.repository.Query("SELECT b FROM Booking b JOIN FETCH b.parkingSpot " +
+                        "JOIN FETCH b.user LEFT JOIN FETCH b.payment WHERE b.user.id = :userId AND b.idempotencyKey = :key")
+        Optional<Booking> findByIdempotencyKey(@org.springframework.data.repository.query.Param("userId") Long userId,
+                        @org.springframework.data.repository.query.Param("key") String key);
+
+        // History views fetch-join everything mapToDTO reads, newest start first
+        @org.springframework.data.jpa.repository.Query("SELECT b FROM Booking b JOIN FETCH b.parkingSpot " +
+                        "JOIN FETCH b.user LEFT JOIN FETCH b.payment WHERE b.user.id = :userId " +
+                        "ORDER BY b.startTime DESC, b.id DESC")
+        List<Booking> findUserHistory(@org.springframework.data.repository.query.Param("userId") Long userId,
+                        org.springframework.data.domain.Pageable pageable);
+
+        // Keyset continuation of findUserHistory after (startTime, id)
+        @org.springframework.data.jpa.repository.Query("SELECT b FROM Booking b JOIN FETCH b.parkingSpot " +
+                        "JOIN FETCH b.user LEFT JOIN FETCH b.payment WHERE b.user.id = :userId " +
+                        "AND (b.startTime < :startTime OR (b.startTime = :startTime AND b.id < :id)) " +
+                        "ORDER BY b.startTime DESC, b.id DESC")
+        List<Booking> findUserHistoryAfter(@org.springframework.data.repository.query.Param("userId") Long userId,
+                        @org.springframework.data.repository.query.Param("startTime") java.time.LocalDateTime startTime,
+                        @org.springframework.data.repository.query.Param("id") Long id,
+                        org.springframework.data.domain.Pageable pageable);
+
+        @org.springframework.data.jpa.repository.Query("SELECT b FROM Booking b JOIN FETCH b.parkingSpot s " +
+                        "JOIN FETCH b.user LEFT JOIN FETCH b.payment WHERE s.provider.user.id = :ownerId " +
+                        "ORDER BY b.startTime DESC, b.id DESC")
+        List<Booking> findOwnerHistory(@org.springframework.data.repository.query.Param("ownerId") Long ownerId,
+                        org.springframework.data.domain.Pageable pageable);
+
+        // Keyset continuation of findOwnerHistory after (startTime, id)
+        @org.springframework.data.jpa.repository.Query("SELECT b FROM Booking b JOIN FETCH b.parkingSpot s " +
+                        "JOIN FETCH b.user LEFT JOIN FETCH b.payment WHERE s.provider.user.id = :ownerId " +
+                        "AND (b.startTime < :startTime OR (b.startTime = :startTime AND b.id < :id)) " +
+                        "ORDER BY b.startTime DESC, b.id DESC")
+        List<Booking> findOwnerHistoryAfter(@org.springframework.data.repository.query.Param("ownerId") Long ownerId,
+                        @org.springframework.data.repository.query.Param("startTime") java.time.LocalDateTime startTime,
+                        @org.springframework.data.repository.query.Param("id") Long id,
+                        org.springframework.data.domain.Pageable pageable);
 
         @org.springframework.data.jpa.repository.Query("SELECT SUM(b.totalPrice) FROM Booking b")
         Double calculateTotalRevenue();
@@ -28,10 +65,64 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
                         @org.springframework.data.repository.query.Param("startTime") java.time.LocalDateTime startTime,
                         @org.springframework.data.repository.query.Param("endTime") java.time.LocalDateTime endTime);
 
-        @org.springframework.data.jpa.repository.Query("SELECT b FROM Booking b WHERE b.parkingSpot.id = :spotId " +
-                        "AND b.status = 'CONFIRMED' " +
-                        "AND b.startTime > :now")
-        List<Booking> findFutureConfirmedBookings(
+        // (bookingId, userId, startTime, endTime, totalPrice) of the spot's upcoming CONFIRMED bookings.
+        // The rows stay locked until the caller commits, so none can be cancelled by anyone else meanwhile
+        @org.springframework.data.jpa.repository.Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+        @org.springframework.data.jpa.repository.Query("SELECT b.id, b.user.id, b.startTime, b.endTime, b.totalPrice FROM Booking b " +
+                        "WHERE b.parkingSpot.id = :spotId AND b.status = 'CONFIRMED' AND b.startTime > :now")
+        List<Object[]> findFutureConfirmedBookingRows(
                         @org.springframework.data.repository.query.Param("spotId") Long spotId,
                         @org.springframework.data.repository.query.Param("now") java.time.LocalDateTime now);
+
+        // Locks the booking for a status change, so a concurrent cancellation is seen before acting on it
+        @org.springframework.data.jpa.repository.Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+        @org.springframework.data.jpa.repository.Query("SELECT b FROM Booking b WHERE b.id = :id")
+        Optional<Booking> findByIdForUpdate(@org.springframework.data.repository.query.Param("id") Long id);
+
+        @org.springframework.data.jpa.repository.Modifying
+        @org.springframework.data.jpa.repository.Query("UPDATE Booking b SET b.status = 'CANCELLED' " +
+                        "WHERE b.id IN :ids AND b.status = 'CONFIRMED'")
+        int cancelConfirmedByIds(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+        // Ids of CONFIRMED bookings that ended at or before the cutoff, oldest first
+        @org.springframework.data.jpa.repository.Query("SELECT b.id FROM Booking b WHERE b.status = 'CONFIRMED' " +
+                        "AND b.endTime <= :cutoff ORDER BY b.endTime, b.id")
+        List<Long> findOverdueConfirmedIds(
+                        @org.springframework.data.repository.query.Param("cutoff") java.time.LocalDateTime cutoff,
+                        org.springframework.data.domain.Pageable pageable);
+
+        // (bookingId, endTime) of CONFIRMED bookings ending in (from, until]
+        @org.springframework.data.jpa.repository.Query("SELECT b.id, b.endTime FROM Booking b WHERE b.status = 'CONFIRMED' " +
+                        "AND b.endTime > :from AND b.endTime <= :until")
+        List<Object[]> findConfirmedEndingBetween(
+                        @org.springframework.data.repository.query.Param("from") java.time.LocalDateTime from,
+                        @org.springframework.data.repository.query.Param("until") java.time.LocalDateTime until);
+
+        @org.springframework.data.jpa.repository.Modifying
+        @org.springframework.data.jpa.repository.Query("UPDATE Booking b SET b.status = 'COMPLETED' " +
+                        "WHERE b.id IN :ids AND b.status = 'CONFIRMED'")
+        int completeConfirmedByIds(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+        // (id, spotId, providerId, startTime, endTime, totalPrice, status) in id order, for rollup backfill
+        @org.springframework.data.jpa.repository.Query("SELECT b.id, b.parkingSpot.id, b.parkingSpot.provider.id, " +
+                        "b.startTime, b.endTime, b.totalPrice, b.status FROM Booking b WHERE b.id > :afterId ORDER BY b.id")
+        List<Object[]> findRollupRowsAfter(@org.springframework.data.repository.query.Param("afterId") Long afterId,
+                        org.springframework.data.domain.Pageable pageable);
+
+        // Forward-only read of an owner's bookings with everything the export needs joined in
+        @org.springframework.data.jpa.repository.Query("SELECT b FROM Booking b JOIN FETCH b.parkingSpot s " +
+                        "JOIN FETCH b.user LEFT JOIN FETCH b.payment WHERE s.provider.user.id = :ownerId ORDER BY b.id")
+        @org.springframework.data.jpa.repository.QueryHints({
+                        @jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+                        @jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"),
+                        @jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_CACHEABLE, value = "false") })
+        Stream<Booking> streamByOwner(@org.springframework.data.repository.query.Param("ownerId") Long ownerId);
+
+        long countByParkingSpot_Provider_IdAndStatus(Long providerId, Booking.BookingStatus status);
+
+        // (bookingId, spotId, startTime, endTime) of every CONFIRMED booking that has not ended yet
+        @org.springframework.data.jpa.repository.Query("SELECT b.id, b.parkingSpot.id, b.startTime, b.endTime FROM Booking b " +
+                        "WHERE b.status = 'CONFIRMED' AND b.endTime > :now")
+        List<Object[]> findLiveConfirmedIntervals(
+                        @org.springframework.data.repository.query.Param("now") java.time.LocalDateTime now);
 }
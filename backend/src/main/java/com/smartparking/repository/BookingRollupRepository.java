@@ -0,0 +1,37 @@
+package com.smartparking.repository;
+
+import com.smartparking.entity.BookingRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingRollupRepository extends JpaRepository<BookingRollup, Long> {
+
+        // (revenue, bookings, cancellations, occupiedMinutes) summed over [from, to)
+        @org.springframework.data.jpa.repository.Query("SELECT COALESCE(SUM(r.revenue), 0), COALESCE(SUM(r.bookings), 0), " +
+                        "COALESCE(SUM(r.cancellations), 0), COALESCE(SUM(r.occupiedMinutes), 0) " +
+                        "FROM BookingRollup r WHERE r.providerId = :providerId AND r.granularity = :granularity " +
+                        "AND r.bucketStart >= :from AND r.bucketStart < :to")
+        List<Object[]> sumForProvider(
+                        @org.springframework.data.repository.query.Param("providerId") Long providerId,
+                        @org.springframework.data.repository.query.Param("granularity") BookingRollup.Granularity granularity,
+                        @org.springframework.data.repository.query.Param("from") LocalDateTime from,
+                        @org.springframework.data.repository.query.Param("to") LocalDateTime to);
+
+        // (bucketStart, revenue, bookings, cancellations, occupiedMinutes) per bucket over [from, to)
+        @org.springframework.data.jpa.repository.Query("SELECT r.bucketStart, SUM(r.revenue), SUM(r.bookings), " +
+                        "SUM(r.cancellations), SUM(r.occupiedMinutes) " +
+                        "FROM BookingRollup r WHERE r.providerId = :providerId AND r.granularity = :granularity " +
+                        "AND r.bucketStart >= :from AND r.bucketStart < :to " +
+                        "GROUP BY r.bucketStart ORDER BY r.bucketStart")
+        List<Object[]> seriesForProvider(
+                        @org.springframework.data.repository.query.Param("providerId") Long providerId,
+                        @org.springframework.data.repository.query.Param("granularity") BookingRollup.Granularity granularity,
+                        @org.springframework.data.repository.query.Param("from") LocalDateTime from,
+                        @org.springframework.data.repository.query.Param("to") LocalDateTime to);
+
+        @org.springframework.data.jpa.repository.Modifying
+        @org.springframework.data.jpa.repository.Query("DELETE FROM BookingRollup r")
+        int deleteAllRollups();
+}
@@ -0,0 +1,26 @@
+package com.smartparking.repository;
+
+import com.smartparking.entity.NotificationOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+        // Rows whose retry backoff has run out by now
+        @org.springframework.data.jpa.repository.Query("SELECT o.id FROM NotificationOutbox o " +
+                        "WHERE o.status = :status AND (o.nextAttemptAt IS NULL OR o.nextAttemptAt <= :now) " +
+                        "ORDER BY o.id")
+        List<Long> findIdsByStatus(
+                        @org.springframework.data.repository.query.Param("status") NotificationOutbox.OutboxStatus status,
+                        @org.springframework.data.repository.query.Param("now") java.time.LocalDateTime now,
+                        Pageable pageable);
+
+        // Claims a pending row; 0 means another worker already delivered it
+        @org.springframework.data.jpa.repository.Modifying
+        @org.springframework.data.jpa.repository.Query("UPDATE NotificationOutbox o SET o.status = 'SENT', " +
+                        "o.processedAt = :now WHERE o.id = :id AND o.status = 'PENDING'")
+        int markSent(@org.springframework.data.repository.query.Param("id") Long id,
+                        @org.springframework.data.repository.query.Param("now") java.time.LocalDateTime now);
+}
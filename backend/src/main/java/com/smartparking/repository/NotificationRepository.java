@@ -1,10 +1,35 @@
 package com.smartparking.repository;
 
 import com.smartparking.entity.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     List<Notification> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    @org.springframework.data.jpa.repository.Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findFeed(@org.springframework.data.repository.query.Param("userId") Long userId,
+            Pageable pageable);
+
+    // Keyset continuation of findFeed after (createdAt, id)
+    @org.springframework.data.jpa.repository.Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findFeedAfter(@org.springframework.data.repository.query.Param("userId") Long userId,
+            @org.springframework.data.repository.query.Param("createdAt") java.time.LocalDateTime createdAt,
+            @org.springframework.data.repository.query.Param("id") Long id,
+            Pageable pageable);
+
+    long countByUserIdAndIsReadFalse(Long userId);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query("UPDATE Notification n SET n.isRead = true " +
+            "WHERE n.user.id = :userId AND n.isRead = false")
+    int markAllRead(@org.springframework.data.repository.query.Param("userId") Long userId);
+
+    // Notifications a reconnecting stream missed, oldest first
+    List<Notification> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Pageable pageable);
 }
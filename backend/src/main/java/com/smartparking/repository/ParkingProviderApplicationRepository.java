@@ -9,6 +9,8 @@ import java.util.Optional;
 
 public interface ParkingProviderApplicationRepository extends JpaRepository<ProviderApplication, Long> {
     List<ProviderApplication> findByStatus(ProviderApplication.ApplicationStatus status);
+
+    long countByStatus(ProviderApplication.ApplicationStatus status);
 //
 //    Optional<ProviderApplication> findByOwnerAndStatus(User owner,
 //            ProviderApplication.ApplicationStatus status);
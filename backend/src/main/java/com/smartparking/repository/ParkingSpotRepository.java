@@ -1,24 +1,85 @@
 package com.smartparking.repository;
 
+import com.smartparking.dto.SpotDistance;
 import com.smartparking.entity.ParkingSpot;
+import com.smartparking.util.GeoUtil;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
 public interface ParkingSpotRepository extends JpaRepository<ParkingSpot, Long> {
+    @EntityGraph(attributePaths = { "provider", "provider.user" })
     List<ParkingSpot> findByProviderId(Long providerId);
 
+    long countByProviderId(Long providerId);
+
     List<ParkingSpot> findByStateAndDistrict(String state, String district);
 
+    @EntityGraph(attributePaths = { "provider", "provider.user" })
     List<ParkingSpot> findByStatus(com.smartparking.entity.ParkingSpot.ParkingStatus status);
 
+    @EntityGraph(attributePaths = { "provider", "provider.user" })
     List<ParkingSpot> findByStateAndDistrictAndStatus(String state, String district,
             com.smartparking.entity.ParkingSpot.ParkingStatus status);
 
-    @org.springframework.data.jpa.repository.Query("SELECT p FROM ParkingSpot p WHERE " +
+    // Keyset pagination: rows after the cursor id, ascending, limited by the pageable
+    @EntityGraph(attributePaths = { "provider", "provider.user" })
+    List<ParkingSpot> findByStatusAndIdGreaterThanOrderByIdAsc(
+            com.smartparking.entity.ParkingSpot.ParkingStatus status, Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = { "provider", "provider.user" })
+    List<ParkingSpot> findByStateAndDistrictAndStatusAndIdGreaterThanOrderByIdAsc(String state, String district,
+            com.smartparking.entity.ParkingSpot.ParkingStatus status, Long afterId, Pageable pageable);
+
+    // Spots for a page of nearby hits, with provider and owner loaded in the same query
+    @EntityGraph(attributePaths = { "provider", "provider.user" })
+    List<ParkingSpot> findByIdIn(java.util.Collection<Long> ids);
+
+    // The bounding box lets the (status, latitude, longitude) index narrow the rows
+    // before the exact great-circle distance is evaluated
+    @org.springframework.data.jpa.repository.Query("SELECT new com.smartparking.dto.SpotDistance(p.id, " +
             "(6371 * acos(cos(radians(:userLat)) * cos(radians(p.latitude)) * " +
             "cos(radians(p.longitude) - radians(:userLng)) + " +
-            "sin(radians(:userLat)) * sin(radians(p.latitude)))) <= :radius")
-    List<ParkingSpot> findNearbySpots(@org.springframework.data.repository.query.Param("userLat") double userLat,
+            "sin(radians(:userLat)) * sin(radians(p.latitude))))) " +
+            "FROM ParkingSpot p WHERE p.status = :status " +
+            "AND p.latitude BETWEEN :minLat AND :maxLat " +
+            "AND p.longitude BETWEEN :minLng AND :maxLng " +
+            "AND (6371 * acos(cos(radians(:userLat)) * cos(radians(p.latitude)) * " +
+            "cos(radians(p.longitude) - radians(:userLng)) + " +
+            "sin(radians(:userLat)) * sin(radians(p.latitude)))) <= :radius " +
+            "ORDER BY (6371 * acos(cos(radians(:userLat)) * cos(radians(p.latitude)) * " +
+            "cos(radians(p.longitude) - radians(:userLng)) + " +
+            "sin(radians(:userLat)) * sin(radians(p.latitude)))), p.id")
+    List<SpotDistance> findNearbySpots(@org.springframework.data.repository.query.Param("userLat") double userLat,
             @org.springframework.data.repository.query.Param("userLng") double userLng,
-            @org.springframework.data.repository.query.Param("radius") double radius);
+            @org.springframework.data.repository.query.Param("radius") double radius,
+            @org.springframework.data.repository.query.Param("minLat") double minLat,
+            @org.springframework.data.repository.query.Param("maxLat") double maxLat,
+            @org.springframework.data.repository.query.Param("minLng") double minLng,
+            @org.springframework.data.repository.query.Param("maxLng") double maxLng,
+            @org.springframework.data.repository.query.Param("status") com.smartparking.entity.ParkingSpot.ParkingStatus status,
+            Pageable pageable);
+
+    default List<SpotDistance> findNearbySpots(double userLat, double userLng, double radius, Pageable pageable) {
+        double latDelta = GeoUtil.latitudeDelta(radius);
+        double lngDelta = GeoUtil.longitudeDelta(userLat, radius);
+        double minLng = userLng - lngDelta;
+        double maxLng = userLng + lngDelta;
+        if (minLng < -180 || maxLng > 180) {
+            // Box wraps around the antimeridian; only the latitude band can be used
+            minLng = -180;
+            maxLng = 180;
+        }
+        return findNearbySpots(userLat, userLng, radius,
+                userLat - latDelta, userLat + latDelta, minLng, maxLng,
+                com.smartparking.entity.ParkingSpot.ParkingStatus.ACTIVE, pageable);
+    }
+
+    @org.springframework.data.jpa.repository.Query("SELECT p.id, p.totalCapacity FROM ParkingSpot p WHERE p.id IN :ids")
+    List<Object[]> findCapacitiesByIdIn(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+    @org.springframework.data.jpa.repository.Query("SELECT p.id, p.latitude, p.longitude FROM ParkingSpot p WHERE p.status = :status")
+    List<Object[]> findCoordinatesByStatus(
+            @org.springframework.data.repository.query.Param("status") com.smartparking.entity.ParkingSpot.ParkingStatus status);
 }
@@ -4,4 +4,8 @@ import com.smartparking.entity.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
+
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.data.jpa.repository.Query("UPDATE Payment p SET p.status = 'REFUNDED' WHERE p.booking.id IN :bookingIds")
+    int refundByBookingIds(@org.springframework.data.repository.query.Param("bookingIds") java.util.Collection<Long> bookingIds);
 }
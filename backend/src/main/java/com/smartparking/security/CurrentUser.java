@@ -0,0 +1,24 @@
+package com.smartparking.security;
+
+import com.smartparking.entity.User;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Access to the user authenticated for the current request.
+ */
+public class CurrentUser {
+
+    /**
+     * Returns the {@link User} that {@link JwtAuthenticationFilter} placed in the
+     * security context, without going back to the database. The entity is detached;
+     * load it again before changing and saving it.
+     */
+    public static User get() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user)) {
+            throw new RuntimeException("User not found");
+        }
+        return user;
+    }
+}
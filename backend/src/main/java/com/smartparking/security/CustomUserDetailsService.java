@@ -1,21 +1,56 @@
 package com.smartparking.security;
 
+import com.smartparking.entity.User;
 import com.smartparking.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.smartparking.util.TransactionUtil;
+import com.smartparking.util.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+/**
+ * Loads users for authentication, keeping recently seen ones in a bounded cache so
+ * authenticated requests do not query the users table every time.
+ * <p>
+ * Anything that changes a user's password, role or profile must call
+ * {@link #evict(String)}. The TTL bounds how long a change made elsewhere (another
+ * instance, a manual DB edit) can go unnoticed.
+ */
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final TtlCache<String, User> users;
+    private final long ttlMillis;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+            @Value("${security.user-cache.max-entries:10000}") int maxEntries,
+            @Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.users = new TtlCache<>(maxEntries);
+        this.ttlMillis = ttlSeconds * 1000;
+    }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        User cached = users.get(email);
+        if (cached == null) {
+            cached = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+            users.put(email, cached.toBuilder().build(), System.currentTimeMillis() + ttlMillis);
+        }
+        // Each request gets its own copy, so nothing it does can alter the cached one
+        return cached.toBuilder().build();
+    }
+
+    /**
+     * Drops the cached user now and again once the current transaction commits, so a
+     * request racing the update cannot put the old row back.
+     */
+    public void evict(String email) {
+        users.invalidate(email);
+        TransactionUtil.afterCommit(() -> users.invalidate(email));
     }
 }
@@ -4,6 +4,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,6 +21,10 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // EventSource cannot set headers, so only this path also reads a stream token from the query
+    static final String NOTIFICATION_STREAM_PATH = "/api/notifications/stream";
+    static final String STREAM_TOKEN_PARAM = "access_token";
+
     private final JwtTokenProvider jwtTokenProvider;
     private final UserDetailsService userDetailsService;
 
@@ -29,20 +34,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
+        final String streamToken = isNotificationStream(request) ? request.getParameter(STREAM_TOKEN_PARAM) : null;
+        final boolean fromHeader = authHeader != null && authHeader.startsWith("Bearer ");
         final String jwt;
+        final Claims claims;
         final String userEmail;
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (!fromHeader && streamToken == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
-        userEmail = jwtTokenProvider.extractUsername(jwt);
+        jwt = fromHeader ? authHeader.substring(7) : streamToken;
+        // Verified once here; the validity check below reuses these claims
+        claims = jwtTokenProvider.extractAllClaims(jwt);
+        // Stream tokens only work from the query of the stream; login tokens never do
+        if (jwtTokenProvider.isStreamToken(claims) == fromHeader) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        userEmail = claims.getSubject();
 
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            if (jwtTokenProvider.isTokenValid(jwt, userDetails)) {
+            if (jwtTokenProvider.isTokenValid(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -54,4 +69,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private static boolean isNotificationStream(HttpServletRequest request) {
+        return NOTIFICATION_STREAM_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
 }
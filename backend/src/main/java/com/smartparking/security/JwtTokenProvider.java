@@ -1,5 +1,6 @@
 package com.smartparking.security;
 
+import com.smartparking.util.TtlCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -7,7 +8,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -16,11 +21,36 @@ import java.util.function.Function;
 @Service
 public class JwtTokenProvider {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
+    /**
+     * Scope of the tokens handed to EventSource, which cannot send headers and
+     * has to put the token in the stream URL instead.
+     */
+    public static final String NOTIFICATION_STREAM_SCOPE = "notification-stream";
 
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private static final String SCOPE_CLAIM = "scope";
+
+    private final long jwtExpiration;
+    private final long streamTokenExpiration;
+
+    // Built once; both are immutable and thread-safe
+    private final Key signInKey;
+    private final JwtParser jwtParser;
+
+    // SHA-256 of the token -> claims that already passed signature verification
+    private final TtlCache<String, Claims> verifiedClaims;
+
+    public JwtTokenProvider(@Value("${jwt.secret}") String secretKey,
+            @Value("${jwt.expiration}") long jwtExpiration,
+            @Value("${jwt.claims-cache.max-entries:10000}") int claimsCacheSize,
+            @Value("${jwt.stream-token.expiration:60000}") long streamTokenExpiration) {
+        this.jwtExpiration = jwtExpiration;
+        this.streamTokenExpiration = streamTokenExpiration;
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        this.verifiedClaims = new TtlCache<>(claimsCacheSize);
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -36,38 +66,79 @@ public class JwtTokenProvider {
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
+        return buildToken(extraClaims, userDetails, jwtExpiration);
+    }
+
+    /**
+     * Short-lived token that only opens the notification stream; it ends up in
+     * URLs and access logs, so it is useless anywhere else and soon expires.
+     */
+    public String generateStreamToken(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(SCOPE_CLAIM, NOTIFICATION_STREAM_SCOPE);
+        return buildToken(claims, userDetails, streamTokenExpiration);
+    }
+
+    public long getStreamTokenExpiration() {
+        return streamTokenExpiration;
+    }
+
+    public boolean isStreamToken(Claims claims) {
+        return NOTIFICATION_STREAM_SCOPE.equals(claims.get(SCOPE_CLAIM));
+    }
+
+    private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
         return Jwts.builder()
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(extractAllClaims(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Checks claims already obtained from {@link #extractAllClaims} without parsing the token again.
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername())) && !isTokenExpired(claims);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean isTokenExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies the token and returns its claims. A token seen before is served from
+     * the cache until it expires; invalid tokens throw exactly as the parser does and
+     * are never cached.
+     */
+    public Claims extractAllClaims(String token) {
+        String key = hash(token);
+        Claims claims = verifiedClaims.get(key);
+        if (claims != null) {
+            return claims;
+        }
+
+        claims = jwtParser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            verifiedClaims.put(key, claims, claims.getExpiration().getTime());
+        }
+        return claims;
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -0,0 +1,161 @@
+package com.smartparking.service;
+
+import com.smartparking.entity.Booking;
+import com.smartparking.entity.ProviderApplication;
+import com.smartparking.entity.Role;
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.repository.ParkingProviderApplicationRepository;
+import com.smartparking.repository.ParkingSpotRepository;
+import com.smartparking.repository.UserRepository;
+import com.smartparking.util.TransactionUtil;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admin dashboard figures kept in memory.
+ * <p>
+ * Each figure is a counter moved by the code that changes it (registration,
+ * provider applications and their review, spot creation, booking
+ * create/cancel), always after the change
+ * commits. A periodic reconciliation reloads every counter from the database,
+ * correcting drift from changes made outside this instance; an event landing
+ * while it runs can be off by one until the next pass.
+ */
+@Service
+public class AdminStatsService {
+
+    private final UserRepository userRepository;
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final BookingRepository bookingRepository;
+    private final ParkingProviderApplicationRepository applicationRepository;
+
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong providers = new AtomicLong();
+    private final AtomicLong spots = new AtomicLong();
+    private final AtomicLong confirmedBookings = new AtomicLong();
+    private final AtomicLong cancelledBookings = new AtomicLong();
+    // Kept in paise so it can be adjusted atomically
+    private final AtomicLong revenuePaise = new AtomicLong();
+    private final AtomicLong pendingApplications = new AtomicLong();
+    private volatile boolean ready = false;
+
+    public AdminStatsService(UserRepository userRepository, ParkingSpotRepository parkingSpotRepository,
+            BookingRepository bookingRepository, ParkingProviderApplicationRepository applicationRepository) {
+        this.userRepository = userRepository;
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.bookingRepository = bookingRepository;
+        this.applicationRepository = applicationRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${admin.stats.reconcile-interval-ms:300000}",
+            initialDelayString = "${admin.stats.reconcile-interval-ms:300000}")
+    public synchronized void reconcile() {
+        users.set(userRepository.countByRole(Role.USER));
+        providers.set(userRepository.countByRole(Role.PROVIDER));
+        spots.set(parkingSpotRepository.count());
+        confirmedBookings.set(bookingRepository.countByStatus(Booking.BookingStatus.CONFIRMED));
+        cancelledBookings.set(bookingRepository.countByStatus(Booking.BookingStatus.CANCELLED));
+        Double revenue = bookingRepository.calculateTotalRevenue();
+        revenuePaise.set(toPaise(revenue != null ? revenue : 0.0));
+        pendingApplications.set(applicationRepository.countByStatus(ProviderApplication.ApplicationStatus.PENDING));
+        ready = true;
+    }
+
+    public Map<String, Object> getStats() {
+        if (!ready) {
+            reconcile();
+        }
+        long pending = pendingApplications.get();
+        List<String> alerts = new ArrayList<>();
+        if (pending > 0)
+            alerts.add(pending + " pending provider applications");
+
+        return Map.of(
+                "totalUsers", users.get(),
+                "totalProviders", providers.get(),
+                "totalSpots", spots.get(),
+                "activeBookings", confirmedBookings.get(),
+                "cancelledBookings", cancelledBookings.get(),
+                "totalRevenue", revenuePaise.get() / 100.0,
+                "systemAlerts", alerts);
+    }
+
+    public void onUserRegistered(Role role) {
+        TransactionUtil.afterCommit(() -> roleCounter(role, 1));
+    }
+
+    public void onRoleChanged(Role from, Role to) {
+        TransactionUtil.afterCommit(() -> {
+            roleCounter(from, -1);
+            roleCounter(to, 1);
+        });
+    }
+
+    public void onSpotCreated() {
+        TransactionUtil.afterCommit(spots::incrementAndGet);
+    }
+
+    public void onBookingCreated(double totalPrice) {
+        TransactionUtil.afterCommit(() -> {
+            confirmedBookings.incrementAndGet();
+            revenuePaise.addAndGet(toPaise(totalPrice));
+        });
+    }
+
+    public void onBookingsStatusChanged(Booking.BookingStatus from, Booking.BookingStatus to, int count) {
+        if (from == to || count == 0) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            bookingCounter(from, -count);
+            bookingCounter(to, count);
+        });
+    }
+
+    /**
+     * A provider application was submitted ({@code from} is null for a new one),
+     * resubmitted, approved or rejected.
+     */
+    public void onApplicationStatusChanged(ProviderApplication.ApplicationStatus from,
+            ProviderApplication.ApplicationStatus to) {
+        if (from == to) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            if (from == ProviderApplication.ApplicationStatus.PENDING) {
+                pendingApplications.decrementAndGet();
+            }
+            if (to == ProviderApplication.ApplicationStatus.PENDING) {
+                pendingApplications.incrementAndGet();
+            }
+        });
+    }
+
+    private void roleCounter(Role role, long delta) {
+        if (role == Role.USER) {
+            users.addAndGet(delta);
+        } else if (role == Role.PROVIDER) {
+            providers.addAndGet(delta);
+        }
+    }
+
+    private void bookingCounter(Booking.BookingStatus status, long delta) {
+        if (status == Booking.BookingStatus.CONFIRMED) {
+            confirmedBookings.addAndGet(delta);
+        } else if (status == Booking.BookingStatus.CANCELLED) {
+            cancelledBookings.addAndGet(delta);
+        }
+    }
+
+    private static long toPaise(double amount) {
+        return Math.round(amount * 100);
+    }
+}
@@ -6,6 +6,7 @@ import com.smartparking.dto.RegisterRequest;
 import com.smartparking.entity.Role;
 import com.smartparking.entity.User;
 import com.smartparking.repository.UserRepository;
+import com.smartparking.security.CustomUserDetailsService;
 import com.smartparking.security.JwtTokenProvider;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -21,6 +22,8 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthenticationManager authenticationManager;
+    private final CustomUserDetailsService userDetailsService;
+    private final AdminStatsService adminStatsService;
 
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -35,6 +38,7 @@ public class AuthService {
                 .build();
 
         userRepository.save(user);
+        adminStatsService.onUserRegistered(user.getRole());
 
         var token = jwtTokenProvider.generateToken(user);
         return AuthResponse.builder()
@@ -81,6 +85,7 @@ public class AuthService {
 
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        userDetailsService.evict(email);
         System.out.println("Password updated successfully for: " + email);
     }
 }
@@ -0,0 +1,174 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.AvailabilitySlotDTO;
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.util.TransactionUtil;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Exact occupancy of every spot over time, kept as a step function.
+ * <p>
+ * Each spot has a sorted map of change points where the value at key {@code t}
+ * is the number of CONFIRMED bookings occupying the spot from {@code t} up to
+ * the next key. Adding or removing a booking touches only the keys inside its
+ * window, and the peak occupancy of any window is the value in force at its
+ * start plus a scan of the keys inside it: O(log n + k).
+ * <p>
+ * Changes are reported after commit with the booking's id and count once each,
+ * also across a {@link #rebuild} that reads the database while they arrive (see
+ * {@link SpotOccupancy}).
+ */
+@Service
+public class BookingAvailabilityEngine {
+
+    private final BookingRepository bookingRepository;
+    private final SpotOccupancy occupancy = new SpotOccupancy();
+    private volatile boolean ready = false;
+
+    public BookingAvailabilityEngine(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int loaded = occupancy.rebuild(() -> bookingRepository.findLiveConfirmedIntervals(LocalDateTime.now()));
+        ready = true;
+        System.out.println("📈 Availability engine rebuilt from " + loaded + " live bookings");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void add(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        occupancy.add(bookingId, spotId, start, end);
+    }
+
+    public void remove(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        occupancy.remove(bookingId, spotId, start, end);
+    }
+
+    public void addAfterCommit(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        TransactionUtil.afterCommit(() -> add(bookingId, spotId, start, end));
+    }
+
+    public void removeAfterCommit(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        TransactionUtil.afterCommit(() -> remove(bookingId, spotId, start, end));
+    }
+
+    /**
+     * Highest number of bookings occupying the spot at the same moment within the window.
+     */
+    public int maxOccupancy(Long spotId, LocalDateTime start, LocalDateTime end) {
+        OccupancyTimeline timeline = occupancy.timeline(spotId);
+        return timeline == null ? 0 : timeline.max(start, end);
+    }
+
+    /**
+     * Free capacity for consecutive steps of {@code granularity} across the window,
+     * each step reporting the slots that stay free for the whole step.
+     */
+    public List<AvailabilitySlotDTO> freeCapacityTimeline(Long spotId, int capacity, LocalDateTime start,
+            LocalDateTime end, Duration granularity) {
+        List<AvailabilitySlotDTO> steps = new ArrayList<>();
+        for (LocalDateTime from = start; from.isBefore(end); from = from.plus(granularity)) {
+            LocalDateTime to = from.plus(granularity).isAfter(end) ? end : from.plus(granularity);
+            steps.add(AvailabilitySlotDTO.builder()
+                    .startTime(from)
+                    .endTime(to)
+                    .availableSlots(Math.max(0, capacity - maxOccupancy(spotId, from, to)))
+                    .build());
+        }
+        return steps;
+    }
+
+    /**
+     * Drops change points that lie entirely in the past.
+     */
+    @Scheduled(cron = "0 10 0 * * *")
+    public void prunePast() {
+        occupancy.prune(LocalDateTime.now().minusDays(1));
+    }
+
+    static class OccupancyTimeline {
+
+        private final NavigableMap<LocalDateTime, Integer> steps = new TreeMap<>();
+
+        synchronized void apply(LocalDateTime start, LocalDateTime end, int delta) {
+            if (!start.isBefore(end)) {
+                return;
+            }
+            split(start);
+            split(end);
+            for (Map.Entry<LocalDateTime, Integer> entry : steps.subMap(start, true, end, false).entrySet()) {
+                entry.setValue(Math.max(0, entry.getValue() + delta));
+            }
+            merge(start);
+            merge(end);
+        }
+
+        // Check and add in one step, so concurrent admissions cannot both take the last unit
+        synchronized boolean tryAcquire(LocalDateTime start, LocalDateTime end, int capacity) {
+            if (max(start, end) >= capacity) {
+                return false;
+            }
+            apply(start, end, 1);
+            return true;
+        }
+
+        synchronized int max(LocalDateTime start, LocalDateTime end) {
+            int peak = valueAt(start);
+            for (int value : steps.subMap(start, false, end, false).values()) {
+                peak = Math.max(peak, value);
+            }
+            return peak;
+        }
+
+        synchronized void prune(LocalDateTime cutoff) {
+            int current = valueAt(cutoff);
+            steps.headMap(cutoff, true).clear();
+            if (current > 0) {
+                steps.put(cutoff, current);
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return steps.isEmpty();
+        }
+
+        private int valueAt(LocalDateTime time) {
+            Map.Entry<LocalDateTime, Integer> floor = steps.floorEntry(time);
+            return floor == null ? 0 : floor.getValue();
+        }
+
+        private void split(LocalDateTime time) {
+            if (!steps.containsKey(time)) {
+                steps.put(time, valueAt(time));
+            }
+        }
+
+        // Removes a change point that no longer changes anything
+        private void merge(LocalDateTime time) {
+            Integer value = steps.get(time);
+            if (value == null) {
+                return;
+            }
+            Map.Entry<LocalDateTime, Integer> lower = steps.lowerEntry(time);
+            int before = lower == null ? 0 : lower.getValue();
+            if (value == before) {
+                steps.remove(time);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.smartparking.service;
+
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.util.TransactionUtil;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * In-memory occupancy ledger used to admit bookings without a COUNT query.
+ * <p>
+ * Every spot keeps an exact occupancy timeline over half-open {@code [start, end)}
+ * windows, the same structure {@link BookingAvailabilityEngine} answers
+ * availability from, so a booking ending at 10:10 never blocks one starting at
+ * 10:10. Admission checks the peak occupancy of the window and takes a unit in
+ * one step under the spot's own lock, so however many requests race for the
+ * last slot, no moment of the window can exceed capacity. Different spots never
+ * contend.
+ * <p>
+ * Unlike the engine, the ledger also holds reservations whose transaction has
+ * not committed yet. It is rebuilt from the live CONFIRMED bookings at startup;
+ * until then {@link #isReady()} is false and callers admit on the database count,
+ * but still {@link #reserve} what they admit so the ledger does not undercount
+ * once it is ready. Bookings that commit or are cancelled while the rebuild
+ * reads the database are replayed onto it (see {@link SpotOccupancy}).
+ */
+@Service
+public class BookingCapacityLedger {
+
+    /**
+     * Capacity held for a booking being created. Name the booking with
+     * {@link #bookedAs} once it is saved, so the ledger can tell it apart from
+     * the same booking read back from the database.
+     */
+    public static final class Reservation {
+
+        private final SpotOccupancy occupancy;
+        private final SpotOccupancy.Pending unit;
+
+        private Reservation(SpotOccupancy occupancy, SpotOccupancy.Pending unit) {
+            this.occupancy = occupancy;
+            this.unit = unit;
+        }
+
+        public void bookedAs(Long bookingId) {
+            occupancy.bookedAs(unit, bookingId);
+        }
+    }
+
+    private final BookingRepository bookingRepository;
+    private final SpotOccupancy occupancy = new SpotOccupancy();
+    private volatile boolean ready = false;
+
+    public BookingCapacityLedger(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int loaded = occupancy.rebuild(() -> bookingRepository.findLiveConfirmedIntervals(LocalDateTime.now()));
+        ready = true;
+        System.out.println("📒 Booking ledger rebuilt from " + loaded + " live bookings");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Reserves one unit of capacity for the window, or returns null if any moment
+     * of it is already full. Inside a transaction the reservation is handed back
+     * automatically if the transaction does not commit; outside one it counts as
+     * committed at once.
+     */
+    public Reservation tryAcquire(Long spotId, int capacity, LocalDateTime start, LocalDateTime end) {
+        SpotOccupancy.Pending unit = occupancy.take(spotId, start, end, capacity);
+        if (unit == null) {
+            return null;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        occupancy.commit(unit);
+                    } else {
+                        occupancy.rollback(unit);
+                    }
+                }
+            });
+        } else {
+            occupancy.commit(unit);
+        }
+        return new Reservation(occupancy, unit);
+    }
+
+    /**
+     * Records a booking admitted by the database count while the ledger is not
+     * ready, without checking capacity. Behaves like {@link #tryAcquire} otherwise.
+     */
+    public Reservation reserve(Long spotId, LocalDateTime start, LocalDateTime end) {
+        return tryAcquire(spotId, Integer.MAX_VALUE, start, end);
+    }
+
+    /**
+     * Gives back the capacity held by a booking that was cancelled.
+     */
+    public void release(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        occupancy.remove(bookingId, spotId, start, end);
+    }
+
+    /**
+     * Same as {@link #release} but deferred until the current transaction commits.
+     */
+    public void releaseAfterCommit(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        TransactionUtil.afterCommit(() -> release(bookingId, spotId, start, end));
+    }
+
+    /**
+     * Highest number of reservations holding the spot at the same moment within the window.
+     */
+    public int peakOccupancy(Long spotId, LocalDateTime start, LocalDateTime end) {
+        BookingAvailabilityEngine.OccupancyTimeline timeline = occupancy.timeline(spotId);
+        return timeline == null ? 0 : timeline.max(start, end);
+    }
+
+    /**
+     * Drops change points that lie entirely in the past.
+     */
+    @Scheduled(cron = "0 5 0 * * *")
+    public void evictPastDays() {
+        occupancy.prune(LocalDateTime.now().minusDays(1));
+    }
+}
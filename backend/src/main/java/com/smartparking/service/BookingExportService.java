@@ -0,0 +1,160 @@
+package com.smartparking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.smartparking.dto.BookingDTO;
+import com.smartparking.entity.Booking;
+import com.smartparking.repository.BookingRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a provider's bookings as CSV or NDJSON without holding them in memory.
+ * <p>
+ * Rows come from a forward-only, read-only cursor in id order. Every
+ * {@code chunk-size} rows the output is flushed and the persistence context is
+ * cleared, so memory use does not grow with the number of bookings.
+ */
+@Service
+public class BookingExportService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String CSV_HEADER = "id,parkingSpotId,parkingSpotName,startTime,endTime,totalPrice,status,"
+            + "paymentMethod,createdAt,userName,userEmail,userPhone";
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final BookingRepository bookingRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BookingExportService(BookingRepository bookingRepository, EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${booking.export.chunk-size:500}") int chunkSize) {
+        this.bookingRepository = bookingRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Streams every booking on the owner's spots to {@code out} and returns the
+     * number of rows written. The stream is not closed.
+     */
+    public long export(Long ownerId, Format format, OutputStream out) {
+        Long written = transactionTemplate.execute(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            long rows = 0;
+            try (Stream<Booking> bookings = bookingRepository.streamByOwner(ownerId)) {
+                if (format == Format.CSV) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+                Iterator<Booking> iterator = bookings.iterator();
+                while (iterator.hasNext()) {
+                    BookingDTO dto = BookingService.mapToDTO(iterator.next());
+                    if (format == Format.CSV) {
+                        writeCsv(writer, dto);
+                    } else {
+                        writer.write(MAPPER.writeValueAsString(dto));
+                        writer.write('\n');
+                    }
+                    if (++rows % chunkSize == 0) {
+                        writer.flush();
+                        entityManager.clear();
+                    }
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Booking export failed", e);
+            }
+            return rows;
+        });
+        return written != null ? written : 0;
+    }
+
+    private static void writeCsv(Writer writer, BookingDTO dto) throws IOException {
+        writer.write(String.valueOf(dto.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(dto.getParkingSpotId()));
+        writer.write(',');
+        writer.write(csv(dto.getParkingSpotName()));
+        writer.write(',');
+        writer.write(csv(time(dto.getStartTime())));
+        writer.write(',');
+        writer.write(csv(time(dto.getEndTime())));
+        writer.write(',');
+        writer.write(dto.getTotalPrice() != null ? dto.getTotalPrice().toString() : "");
+        writer.write(',');
+        writer.write(csv(dto.getStatus()));
+        writer.write(',');
+        writer.write(csv(dto.getPaymentMethod()));
+        writer.write(',');
+        writer.write(csv(time(dto.getCreatedAt())));
+        writer.write(',');
+        writer.write(csv(dto.getUserName()));
+        writer.write(',');
+        writer.write(csv(dto.getUserEmail()));
+        writer.write(',');
+        writer.write(csv(dto.getUserPhone()));
+        writer.write('\n');
+    }
+
+    private static String time(LocalDateTime time) {
+        return time != null ? time.format(TIME_FORMAT) : null;
+    }
+
+    // RFC 4180 quoting; a value a spreadsheet would run as a formula is prefixed with '
+    static String csv(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '@' || ((first == '+' || first == '-') && !value.matches("[+-][0-9 ]*"))) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,35 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.BookingDTO;
+import com.smartparking.util.TransactionUtil;
+import com.smartparking.util.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recent results of {@code createBooking} by (user, Idempotency-Key), so a
+ * retried request is answered without touching the database. The unique
+ * (user_id, idempotency_key) column on bookings stays the source of truth once
+ * an entry has expired or been evicted.
+ */
+@Component
+public class BookingIdempotencyCache {
+
+    private final TtlCache<String, BookingDTO> results;
+    private final long ttlMillis;
+
+    public BookingIdempotencyCache(@Value("${booking.idempotency.max-entries:10000}") int maxEntries,
+            @Value("${booking.idempotency.ttl-seconds:86400}") long ttlSeconds) {
+        this.results = new TtlCache<>(maxEntries);
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public BookingDTO get(Long userId, String key) {
+        return results.get(userId + ":" + key);
+    }
+
+    public void putAfterCommit(Long userId, String key, BookingDTO result) {
+        TransactionUtil.afterCommit(
+                () -> results.put(userId + ":" + key, result, System.currentTimeMillis() + ttlMillis));
+    }
+}
@@ -0,0 +1,155 @@
+package com.smartparking.service;
+
+import com.smartparking.entity.Booking;
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.util.TransactionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Moves CONFIRMED bookings to COMPLETED once their end time has passed.
+ * <p>
+ * Bookings ending within the next {@code horizon-minutes} are held in memory,
+ * ordered by end time; each tick takes everything due off the head of that
+ * queue and completes it with chunked bulk updates. Bookings further out stay
+ * in the database until a periodic reload pulls the next window in. Every
+ * reload also sweeps the (status, end_time) index for overdue rows, which
+ * catches bookings made on other instances or missed while the queue was
+ * being refilled. The updates only touch rows that are still CONFIRMED, so a
+ * cancelled booking left in the queue is harmless.
+ */
+@Service
+public class BookingLifecycleService {
+
+    private final BookingRepository bookingRepository;
+    private final AdminStatsService adminStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Duration horizon;
+
+    // End time -> ids of bookings ending then
+    private final ConcurrentSkipListMap<LocalDateTime, Set<Long>> dueQueue = new ConcurrentSkipListMap<>();
+    // Every CONFIRMED booking ending before this is in the queue; null until the first load
+    private volatile LocalDateTime loadedUntil;
+
+    public BookingLifecycleService(BookingRepository bookingRepository, AdminStatsService adminStatsService,
+            PlatformTransactionManager transactionManager,
+            @Value("${booking.lifecycle.chunk-size:500}") int chunkSize,
+            @Value("${booking.lifecycle.horizon-minutes:120}") long horizonMinutes) {
+        this.bookingRepository = bookingRepository;
+        this.adminStatsService = adminStatsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.horizon = Duration.ofMinutes(horizonMinutes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${booking.lifecycle.reload-interval-ms:1800000}",
+            initialDelayString = "${booking.lifecycle.reload-interval-ms:1800000}")
+    public void reload() {
+        reload(LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${booking.lifecycle.tick-ms:60000}")
+    public void tick() {
+        completeDue(LocalDateTime.now());
+    }
+
+    /**
+     * Completes every overdue booking, then refills the queue with the bookings
+     * ending within the horizon. Returns the number completed.
+     */
+    public synchronized int reload(LocalDateTime now) {
+        int completed = 0;
+        while (true) {
+            List<Long> overdue = bookingRepository.findOverdueConfirmedIds(now, PageRequest.of(0, chunkSize));
+            if (overdue.isEmpty()) {
+                break;
+            }
+            int updated = completeChunk(overdue);
+            completed += updated;
+            if (updated == 0) {
+                break;
+            }
+        }
+
+        LocalDateTime until = now.plus(horizon);
+        dueQueue.clear();
+        List<Object[]> upcoming = bookingRepository.findConfirmedEndingBetween(now, until);
+        for (Object[] row : upcoming) {
+            enqueue((Long) row[0], (LocalDateTime) row[1]);
+        }
+        loadedUntil = until;
+
+        if (completed > 0 || !upcoming.isEmpty()) {
+            System.out.println("⏱️ Booking lifecycle: completed " + completed + " overdue, " + upcoming.size()
+                    + " due within " + horizon.toMinutes() + " min");
+        }
+        return completed;
+    }
+
+    /**
+     * Completes the queued bookings whose end time is at or before {@code now}.
+     */
+    public synchronized int completeDue(LocalDateTime now) {
+        List<Long> due = new ArrayList<>();
+        Iterator<Map.Entry<LocalDateTime, Set<Long>>> head = dueQueue.headMap(now, true).entrySet().iterator();
+        while (head.hasNext()) {
+            due.addAll(head.next().getValue());
+            head.remove();
+        }
+
+        int completed = 0;
+        for (int from = 0; from < due.size(); from += chunkSize) {
+            completed += completeChunk(due.subList(from, Math.min(from + chunkSize, due.size())));
+        }
+        return completed;
+    }
+
+    /**
+     * Queues a new booking once its transaction commits. Bookings beyond the
+     * loaded window are left for a later reload.
+     */
+    public void scheduleAfterCommit(Long bookingId, LocalDateTime endTime) {
+        TransactionUtil.afterCommit(() -> {
+            LocalDateTime until = loadedUntil;
+            if (until != null && endTime.isBefore(until)) {
+                enqueue(bookingId, endTime);
+            }
+        });
+    }
+
+    int queuedCount() {
+        return dueQueue.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void enqueue(Long bookingId, LocalDateTime endTime) {
+        dueQueue.computeIfAbsent(endTime, key -> ConcurrentHashMap.newKeySet()).add(bookingId);
+    }
+
+    private int completeChunk(List<Long> ids) {
+        Integer updated = transactionTemplate.execute(status -> {
+            int count = bookingRepository.completeConfirmedByIds(ids);
+            adminStatsService.onBookingsStatusChanged(Booking.BookingStatus.CONFIRMED,
+                    Booking.BookingStatus.COMPLETED, count);
+            return count;
+        });
+        return updated != null ? updated : 0;
+    }
+}
@@ -0,0 +1,253 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.RollupDTO;
+import com.smartparking.entity.Booking;
+import com.smartparking.entity.BookingRollup;
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.repository.BookingRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hourly and daily booking totals per spot, for provider dashboards.
+ * <p>
+ * Booking and cancellation deltas are upserted into {@code booking_rollups} in
+ * the same transaction as the booking change, so a dashboard figure is one
+ * indexed range query instead of a scan of every booking. Revenue and the
+ * booking count go to the bucket the booking starts in; occupied minutes are
+ * split across every bucket the booking covers. A cancellation adds to the
+ * cancellation count and takes the revenue and occupancy back out.
+ * {@link #rebuild()} recomputes the whole table from the bookings.
+ */
+@Service
+public class BookingRollupService {
+
+    private static final String UPSERT = "INSERT INTO booking_rollups "
+            + "(granularity, bucket_start, parking_spot_id, provider_id, revenue, bookings, cancellations, occupied_minutes) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "revenue = revenue + VALUES(revenue), bookings = bookings + VALUES(bookings), "
+            + "cancellations = cancellations + VALUES(cancellations), "
+            + "occupied_minutes = occupied_minutes + VALUES(occupied_minutes)";
+
+    private static final int MAX_HOUR_BUCKETS = 24 * 31;
+    private static final int MAX_DAY_BUCKETS = 366;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookingRepository bookingRepository;
+    private final BookingRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final boolean backfillOnStartup;
+
+    public BookingRollupService(JdbcTemplate jdbcTemplate, BookingRepository bookingRepository,
+            BookingRollupRepository rollupRepository, PlatformTransactionManager transactionManager,
+            @Value("${booking.rollups.chunk-size:1000}") int chunkSize,
+            @Value("${booking.rollups.backfill-on-startup:true}") boolean backfillOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookingRepository = bookingRepository;
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (backfillOnStartup && rollupRepository.count() == 0 && bookingRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    public void recordBooking(Long spotId, Long providerId, LocalDateTime start, LocalDateTime end,
+            double totalPrice) {
+        Deltas deltas = new Deltas();
+        deltas.booking(spotId, providerId, start, end, totalPrice);
+        apply(deltas);
+    }
+
+    public void recordCancellation(Long spotId, Long providerId, LocalDateTime start, LocalDateTime end,
+            double totalPrice) {
+        Deltas deltas = new Deltas();
+        deltas.cancellation(spotId, providerId, start, end, totalPrice);
+        apply(deltas);
+    }
+
+    /**
+     * Writes the accumulated deltas as one batch. Rows are written in key order
+     * so concurrent writers lock shared buckets in the same order.
+     */
+    public void apply(Deltas deltas) {
+        if (deltas.rows.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(deltas.rows.size());
+        for (Map.Entry<BucketKey, Delta> entry : deltas.rows.entrySet()) {
+            BucketKey key = entry.getKey();
+            Delta delta = entry.getValue();
+            args.add(new Object[] { key.granularity().name(), Timestamp.valueOf(key.bucketStart()), key.spotId(),
+                    delta.providerId, delta.revenue, delta.bookings, delta.cancellations, delta.occupiedMinutes });
+        }
+        jdbcTemplate.batchUpdate(UPSERT, args);
+    }
+
+    /**
+     * Recomputes every rollup from the bookings table in one transaction, scanning
+     * bookings by id in chunks. Meant for the initial backfill and for repairs; a
+     * booking changed while it runs can be miscounted until the next rebuild.
+     */
+    public long rebuild() {
+        Long scanned = transactionTemplate.execute(status -> {
+            rollupRepository.deleteAllRollups();
+            long total = 0;
+            long afterId = 0;
+            while (true) {
+                List<Object[]> rows = bookingRepository.findRollupRowsAfter(afterId, PageRequest.of(0, chunkSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                Deltas deltas = new Deltas();
+                for (Object[] row : rows) {
+                    Long spotId = (Long) row[1];
+                    Long providerId = (Long) row[2];
+                    LocalDateTime start = (LocalDateTime) row[3];
+                    LocalDateTime end = (LocalDateTime) row[4];
+                    double price = row[5] != null ? ((Number) row[5]).doubleValue() : 0.0;
+                    deltas.booking(spotId, providerId, start, end, price);
+                    if (row[6] == Booking.BookingStatus.CANCELLED) {
+                        deltas.cancellation(spotId, providerId, start, end, price);
+                    }
+                }
+                apply(deltas);
+                total += rows.size();
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+            return total;
+        });
+        System.out.println("📊 Booking rollups rebuilt from " + scanned + " bookings");
+        return scanned != null ? scanned : 0;
+    }
+
+    public RollupDTO getProviderTotals(Long providerId, BookingRollup.Granularity granularity, LocalDateTime from,
+            LocalDateTime to) {
+        List<Object[]> result = rollupRepository.sumForProvider(providerId, granularity, from, to);
+        Object[] row = result.isEmpty() ? new Object[] { 0, 0, 0, 0 } : result.get(0);
+        return RollupDTO.builder()
+                .bucketStart(from)
+                .revenue(((Number) row[0]).doubleValue())
+                .bookings(((Number) row[1]).longValue())
+                .cancellations(((Number) row[2]).longValue())
+                .occupiedSlotHours(((Number) row[3]).longValue() / 60.0)
+                .build();
+    }
+
+    public List<RollupDTO> getProviderSeries(Long providerId, BookingRollup.Granularity granularity,
+            LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new RuntimeException("Invalid time range.");
+        }
+        long buckets = granularity == BookingRollup.Granularity.HOUR
+                ? Duration.between(from, to).toHours()
+                : Duration.between(from, to).toDays();
+        if (buckets > (granularity == BookingRollup.Granularity.HOUR ? MAX_HOUR_BUCKETS : MAX_DAY_BUCKETS)) {
+            throw new RuntimeException("Range too long for " + granularity + " granularity.");
+        }
+
+        List<RollupDTO> series = new ArrayList<>();
+        for (Object[] row : rollupRepository.seriesForProvider(providerId, granularity, from, to)) {
+            series.add(RollupDTO.builder()
+                    .bucketStart((LocalDateTime) row[0])
+                    .revenue(((Number) row[1]).doubleValue())
+                    .bookings(((Number) row[2]).longValue())
+                    .cancellations(((Number) row[3]).longValue())
+                    .occupiedSlotHours(((Number) row[4]).longValue() / 60.0)
+                    .build());
+        }
+        return series;
+    }
+
+    /**
+     * Deltas for many bookings, merged per bucket before they are written.
+     */
+    public static class Deltas {
+
+        private final Map<BucketKey, Delta> rows = new TreeMap<>(BucketKey.ORDER);
+
+        public void booking(Long spotId, Long providerId, LocalDateTime start, LocalDateTime end,
+                double totalPrice) {
+            add(spotId, providerId, start, end, totalPrice, 1, 0, 1);
+        }
+
+        public void cancellation(Long spotId, Long providerId, LocalDateTime start, LocalDateTime end,
+                double totalPrice) {
+            add(spotId, providerId, start, end, -totalPrice, 0, 1, -1);
+        }
+
+        private void add(Long spotId, Long providerId, LocalDateTime start, LocalDateTime end, double revenue,
+                long bookings, long cancellations, int occupancySign) {
+            for (BookingRollup.Granularity granularity : BookingRollup.Granularity.values()) {
+                Delta first = delta(granularity, truncate(start, granularity), spotId, providerId);
+                first.revenue += revenue;
+                first.bookings += bookings;
+                first.cancellations += cancellations;
+
+                if (end == null || !start.isBefore(end)) {
+                    continue;
+                }
+                for (LocalDateTime bucket = truncate(start, granularity); bucket.isBefore(end);
+                        bucket = next(bucket, granularity)) {
+                    LocalDateTime from = start.isAfter(bucket) ? start : bucket;
+                    LocalDateTime bucketEnd = next(bucket, granularity);
+                    LocalDateTime to = end.isBefore(bucketEnd) ? end : bucketEnd;
+                    delta(granularity, bucket, spotId, providerId).occupiedMinutes += occupancySign
+                            * Duration.between(from, to).toMinutes();
+                }
+            }
+        }
+
+        private Delta delta(BookingRollup.Granularity granularity, LocalDateTime bucket, Long spotId,
+                Long providerId) {
+            Delta delta = rows.computeIfAbsent(new BucketKey(granularity, bucket, spotId), key -> new Delta());
+            delta.providerId = providerId;
+            return delta;
+        }
+    }
+
+    static LocalDateTime truncate(LocalDateTime time, BookingRollup.Granularity granularity) {
+        return time.truncatedTo(granularity == BookingRollup.Granularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+    }
+
+    private static LocalDateTime next(LocalDateTime bucket, BookingRollup.Granularity granularity) {
+        return granularity == BookingRollup.Granularity.HOUR ? bucket.plusHours(1) : bucket.plusDays(1);
+    }
+
+    // One fixed order, so concurrent batches lock shared rows in the same sequence
+    private record BucketKey(BookingRollup.Granularity granularity, LocalDateTime bucketStart, Long spotId) {
+        static final Comparator<BucketKey> ORDER = Comparator.comparing(BucketKey::granularity)
+                .thenComparing(BucketKey::spotId)
+                .thenComparing(BucketKey::bucketStart);
+    }
+
+    private static final class Delta {
+        private Long providerId;
+        private double revenue;
+        private long bookings;
+        private long cancellations;
+        private long occupiedMinutes;
+    }
+}
@@ -1,6 +1,9 @@
 package com.smartparking.service;
 
+import com.smartparking.dto.AvailabilityRequestDTO;
+import com.smartparking.dto.AvailabilitySlotDTO;
 import com.smartparking.dto.BookingDTO;
+import com.smartparking.dto.CursorPageDTO;
 import com.smartparking.entity.Booking;
 import com.smartparking.entity.ParkingSpot;
 import com.smartparking.entity.User;
@@ -8,14 +11,20 @@ import com.smartparking.exception.NotFoundException;
 import com.smartparking.repository.BookingRepository;
 import com.smartparking.repository.ParkingSpotRepository;
 import com.smartparking.repository.PaymentRepository;
-import com.smartparking.repository.UserRepository;
+import com.smartparking.security.CurrentUser;
+import com.smartparking.util.CursorUtil;
+import com.smartparking.util.SnowflakeIdGenerator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,14 +34,36 @@ public class BookingService {
 
         private final BookingRepository bookingRepository;
         private final ParkingSpotRepository parkingSpotRepository;
-        private final UserRepository userRepository;
         private final PaymentRepository paymentRepository;
+        private final BookingCapacityLedger capacityLedger;
+        private final BookingAvailabilityEngine availabilityEngine;
+        private final AdminStatsService adminStatsService;
+        private final BookingRollupService rollupService;
+        private final BookingLifecycleService lifecycleService;
+        private final BookingIdempotencyCache idempotencyCache;
+        private final SnowflakeIdGenerator idGenerator;
+
+        private static final int MAX_TIMELINE_STEPS = 500;
+        private static final int MAX_BATCH_SIZE = 200;
+        private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
 
         public BookingDTO createBooking(BookingDTO dto) {
-                String email = ((UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
-                                .getUsername();
-                User user = userRepository.findByEmail(email)
-                                .orElseThrow(() -> new RuntimeException("User not found"));
+                return createBooking(dto, null);
+        }
+
+        /**
+         * Creates a booking once per {@code idempotencyKey}: a retry with the same key
+         * returns the original booking instead of creating another one.
+         */
+        public BookingDTO createBooking(BookingDTO dto, String idempotencyKey) {
+                User user = CurrentUser.get();
+
+                if (idempotencyKey != null) {
+                        BookingDTO previous = findByIdempotencyKey(user.getId(), idempotencyKey);
+                        if (previous != null) {
+                                return checkSameRequest(previous, dto);
+                        }
+                }
 
                 ParkingSpot parkingSpot = parkingSpotRepository.findById(dto.getParkingSpotId())
                                 .orElseThrow(() -> new RuntimeException("Parking Spot not found"));
@@ -44,12 +75,26 @@ public class BookingService {
                 double totalPrice = hours * parkingSpot.getPricePerHour();
 
                 // CHECK AVAILABILITY
-                long overlappingBookings = bookingRepository.countOverlappingBookings(
-                                parkingSpot.getId(),
-                                dto.getStartTime(),
-                                dto.getEndTime());
+                // The ledger reserves the slot atomically and releases it again if this
+                // transaction rolls back; the DB count is only used until it has loaded,
+                // and what it admits is still reserved so the ledger counts it once ready.
+                // It measures peak occupancy on exact intervals like the availability
+                // engine, so a window reported free is admitted here.
+                BookingCapacityLedger.Reservation reservation;
+                if (capacityLedger.isReady()) {
+                        reservation = capacityLedger.tryAcquire(parkingSpot.getId(), parkingSpot.getTotalCapacity(),
+                                        dto.getStartTime(), dto.getEndTime());
+                } else {
+                        long overlappingBookings = bookingRepository.countOverlappingBookings(
+                                        parkingSpot.getId(),
+                                        dto.getStartTime(),
+                                        dto.getEndTime());
+                        reservation = overlappingBookings < parkingSpot.getTotalCapacity()
+                                        ? capacityLedger.reserve(parkingSpot.getId(), dto.getStartTime(), dto.getEndTime())
+                                        : null;
+                }
 
-                if (overlappingBookings >= parkingSpot.getTotalCapacity()) {
+                if (reservation == null) {
                         throw new RuntimeException("Parking spot is fully booked for the selected time.");
                 }
 
@@ -60,9 +105,17 @@ public class BookingService {
                                 .endTime(dto.getEndTime())
                                 .totalPrice(totalPrice)
                                 .status(Booking.BookingStatus.CONFIRMED)
+                                .idempotencyKey(idempotencyKey)
                                 .build();
 
                 Booking savedBooking = bookingRepository.save(booking);
+                reservation.bookedAs(savedBooking.getId());
+                adminStatsService.onBookingCreated(totalPrice);
+                rollupService.recordBooking(parkingSpot.getId(), providerId(parkingSpot), savedBooking.getStartTime(),
+                                savedBooking.getEndTime(), totalPrice);
+                availabilityEngine.addAfterCommit(savedBooking.getId(), parkingSpot.getId(), savedBooking.getStartTime(),
+                                savedBooking.getEndTime());
+                lifecycleService.scheduleAfterCommit(savedBooking.getId(), savedBooking.getEndTime());
 
                 // CREATE PAYMENT RECORD
                 if (dto.getPaymentMethod() != null) {
@@ -72,44 +125,175 @@ public class BookingService {
                                                         .valueOf(dto.getPaymentMethod()))
                                         .status(com.smartparking.entity.Payment.PaymentStatus.SUCCESS)
                                         .paymentTime(java.time.LocalDateTime.now())
-                                        .transactionId("TXN_" + System.currentTimeMillis())
+                                        .transactionId("TXN_" + idGenerator.nextId())
                                         .booking(savedBooking)
                                         .build();
 
                         paymentRepository.save(payment);
+                        savedBooking.setPayment(payment);
+                }
+
+                BookingDTO result = mapToDTO(savedBooking);
+                if (idempotencyKey != null) {
+                        idempotencyCache.putAfterCommit(user.getId(), idempotencyKey, result);
                 }
+                return result;
+        }
 
-                return mapToDTO(savedBooking);
+        /**
+         * The booking created earlier under this key, from the cache or the database,
+         * or null if the key has not been used by this user.
+         */
+        public BookingDTO findByIdempotencyKey(Long userId, String idempotencyKey) {
+                if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                        throw new RuntimeException("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH
+                                        + " characters.");
+                }
+                BookingDTO cached = idempotencyCache.get(userId, idempotencyKey);
+                if (cached != null) {
+                        return cached;
+                }
+                return bookingRepository.findByIdempotencyKey(userId, idempotencyKey)
+                                .map(BookingService::mapToDTO)
+                                .orElse(null);
+        }
+
+        // A key reused for a different booking is a client bug, not a retry
+        private static BookingDTO checkSameRequest(BookingDTO previous, BookingDTO dto) {
+                if (!previous.getParkingSpotId().equals(dto.getParkingSpotId())
+                                || !previous.getStartTime().equals(dto.getStartTime())
+                                || !previous.getEndTime().equals(dto.getEndTime())) {
+                        throw new RuntimeException("Idempotency-Key was already used for a different booking.");
+                }
+                return previous;
         }
 
         public List<BookingDTO> getUserBookings() {
-                String email = ((UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
-                                .getUsername();
-                User user = userRepository.findByEmail(email)
-                                .orElseThrow(() -> new RuntimeException("User not found"));
+                User user = CurrentUser.get();
 
-                return bookingRepository.findByUserId(user.getId()).stream()
-                                .map(this::mapToDTO)
+                return bookingRepository.findUserHistory(user.getId(), Pageable.unpaged()).stream()
+                                .map(BookingService::mapToDTO)
                                 .collect(Collectors.toList());
         }
 
         public List<BookingDTO> getBookingsByOwner(Long ownerId) {
-                return bookingRepository.findByParkingSpot_Provider_User_Id(ownerId).stream()
-                                .map(this::mapToDTO)
+                return bookingRepository.findOwnerHistory(ownerId, Pageable.unpaged()).stream()
+                                .map(BookingService::mapToDTO)
                                 .collect(Collectors.toList());
         }
 
+        public CursorPageDTO<BookingDTO> getUserBookingsPage(String cursor, Integer size) {
+                Long userId = CurrentUser.get().getId();
+                int pageSize = CursorUtil.clampPageSize(size);
+                CursorUtil.TimeCursor after = CursorUtil.decodeTimeCursor(cursor);
+                PageRequest limit = PageRequest.of(0, pageSize + 1);
+                return toPage(after == null
+                                ? bookingRepository.findUserHistory(userId, limit)
+                                : bookingRepository.findUserHistoryAfter(userId, after.time(), after.id(), limit),
+                                pageSize);
+        }
+
+        public CursorPageDTO<BookingDTO> getBookingsByOwnerPage(Long ownerId, String cursor, Integer size) {
+                int pageSize = CursorUtil.clampPageSize(size);
+                CursorUtil.TimeCursor after = CursorUtil.decodeTimeCursor(cursor);
+                PageRequest limit = PageRequest.of(0, pageSize + 1);
+                return toPage(after == null
+                                ? bookingRepository.findOwnerHistory(ownerId, limit)
+                                : bookingRepository.findOwnerHistoryAfter(ownerId, after.time(), after.id(), limit),
+                                pageSize);
+        }
+
+        // One extra row is fetched to learn whether another page follows
+        private static CursorPageDTO<BookingDTO> toPage(List<Booking> rows, int pageSize) {
+                boolean hasMore = rows.size() > pageSize;
+                List<Booking> page = hasMore ? rows.subList(0, pageSize) : rows;
+                Booking last = page.isEmpty() ? null : page.get(page.size() - 1);
+                return CursorPageDTO.<BookingDTO>builder()
+                                .items(page.stream().map(BookingService::mapToDTO).collect(Collectors.toList()))
+                                .nextCursor(hasMore ? CursorUtil.encode(last.getStartTime(), last.getId()) : null)
+                                .build();
+        }
+
         public int getAvailableSlots(Long spotId, java.time.LocalDateTime startTime, java.time.LocalDateTime endTime) {
                 ParkingSpot spot = parkingSpotRepository.findById(spotId)
                                 .orElseThrow(() -> new RuntimeException("Parking Spot not found"));
 
-                long bookedCount = bookingRepository.countOverlappingBookings(spotId, startTime, endTime);
+                // Peak concurrent occupancy inside the window, not just the number of overlapping bookings
+                long bookedCount = availabilityEngine.isReady()
+                                ? availabilityEngine.maxOccupancy(spotId, startTime, endTime)
+                                : bookingRepository.countOverlappingBookings(spotId, startTime, endTime);
 
                 int available = spot.getTotalCapacity() - (int) bookedCount;
                 return Math.max(0, available);
         }
 
-        private BookingDTO mapToDTO(Booking booking) {
+        /**
+         * Available slots for many (spot, window) pairs at once: one capacity query plus
+         * an in-memory pass over the availability engine. A spot listed with several
+         * windows reports its lowest availability; unknown spots are left out.
+         */
+        public Map<Long, Integer> getAvailableSlotsBatch(List<AvailabilityRequestDTO> requests) {
+                if (requests == null || requests.isEmpty()) {
+                        return Map.of();
+                }
+                if (requests.size() > MAX_BATCH_SIZE) {
+                        throw new RuntimeException("At most " + MAX_BATCH_SIZE + " availability checks per batch.");
+                }
+                for (AvailabilityRequestDTO request : requests) {
+                        if (request.getParkingSpotId() == null || request.getStartTime() == null
+                                        || request.getEndTime() == null) {
+                                throw new RuntimeException("parkingSpotId, startTime and endTime are required.");
+                        }
+                }
+
+                Map<Long, Integer> capacities = new HashMap<>();
+                for (Object[] row : parkingSpotRepository.findCapacitiesByIdIn(requests.stream()
+                                .map(AvailabilityRequestDTO::getParkingSpotId)
+                                .collect(Collectors.toSet()))) {
+                        capacities.put((Long) row[0], row[1] != null ? (Integer) row[1] : 0);
+                }
+
+                Map<Long, Integer> available = new HashMap<>();
+                for (AvailabilityRequestDTO request : requests) {
+                        Integer capacity = capacities.get(request.getParkingSpotId());
+                        if (capacity == null) {
+                                continue;
+                        }
+                        long booked = availabilityEngine.isReady()
+                                        ? availabilityEngine.maxOccupancy(request.getParkingSpotId(),
+                                                        request.getStartTime(), request.getEndTime())
+                                        : bookingRepository.countOverlappingBookings(request.getParkingSpotId(),
+                                                        request.getStartTime(), request.getEndTime());
+                        int slots = Math.max(0, capacity - (int) booked);
+                        available.merge(request.getParkingSpotId(), slots, Math::min);
+                }
+                return available;
+        }
+
+        public List<AvailabilitySlotDTO> getAvailabilityTimeline(Long spotId, java.time.LocalDateTime startTime,
+                        java.time.LocalDateTime endTime, int granularityMinutes) {
+                ParkingSpot spot = parkingSpotRepository.findById(spotId)
+                                .orElseThrow(() -> new RuntimeException("Parking Spot not found"));
+
+                if (!availabilityEngine.isReady()) {
+                        throw new RuntimeException("Availability timeline is not ready yet, please retry shortly.");
+                }
+                if (granularityMinutes < 1 || !startTime.isBefore(endTime)) {
+                        throw new RuntimeException("Invalid time window or granularity.");
+                }
+                if (Duration.between(startTime, endTime).toMinutes() / granularityMinutes > MAX_TIMELINE_STEPS) {
+                        throw new RuntimeException("Too many timeline steps; use a coarser granularity.");
+                }
+
+                return availabilityEngine.freeCapacityTimeline(spotId, spot.getTotalCapacity(), startTime, endTime,
+                                Duration.ofMinutes(granularityMinutes));
+        }
+
+        private static Long providerId(ParkingSpot spot) {
+                return spot.getProvider() != null ? spot.getProvider().getId() : null;
+        }
+
+        static BookingDTO mapToDTO(Booking booking) {
                 String paymentMethod = booking.getPayment() != null ? booking.getPayment().getPaymentMethod().name()
                                 : "N/A";
 
@@ -132,11 +316,8 @@ public class BookingService {
         }
 
         public BookingDTO getBookingById(Long id) {
-                String email = ((UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
-                                .getUsername();
-                User user = userRepository.findByEmail(email)
-                                .orElseThrow(() -> new RuntimeException("User not found"));
-                return bookingRepository.findByIdAndUser(id, user).map(this::mapToDTO)
+                User user = CurrentUser.get();
+                return bookingRepository.findByIdAndUser(id, user).map(BookingService::mapToDTO)
                                 .orElseThrow(() -> new RuntimeException("Booking not found by id: " + id));
 
         }
@@ -144,7 +325,8 @@ public class BookingService {
         public void cancelBooking(Long bookingId) {
                 String email = ((UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
                                 .getUsername();
-                Booking booking = bookingRepository.findById(bookingId)
+                // Locked, so a spot deactivation cancelling it at the same moment is seen here
+                Booking booking = bookingRepository.findByIdForUpdate(bookingId)
                                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
                 if (!booking.getUser().getEmail().equals(email)) {
@@ -155,6 +337,10 @@ public class BookingService {
                         throw new RuntimeException("Booking is already cancelled");
                 }
 
+                if (booking.getStatus() == Booking.BookingStatus.COMPLETED) {
+                        throw new RuntimeException("Completed bookings cannot be cancelled");
+                }
+
                 // Rule: Cancel allowed only if start time is < 48 hours away
                 long hoursUntilStart = Duration.between(java.time.LocalDateTime.now(), booking.getStartTime())
                                 .toHours();
@@ -163,6 +349,7 @@ public class BookingService {
                                         "Cancellation is only allowed within 48 hours of the booking start time.");
                 }
 
+                adminStatsService.onBookingsStatusChanged(booking.getStatus(), Booking.BookingStatus.CANCELLED, 1);
                 booking.setStatus(Booking.BookingStatus.CANCELLED);
 
                 if (booking.getPayment() != null) {
@@ -170,5 +357,11 @@ public class BookingService {
                 }
 
                 bookingRepository.save(booking);
+                rollupService.recordCancellation(booking.getParkingSpot().getId(), providerId(booking.getParkingSpot()),
+                                booking.getStartTime(), booking.getEndTime(), booking.getTotalPrice());
+                capacityLedger.releaseAfterCommit(booking.getId(), booking.getParkingSpot().getId(),
+                                booking.getStartTime(), booking.getEndTime());
+                availabilityEngine.removeAfterCommit(booking.getId(), booking.getParkingSpot().getId(),
+                                booking.getStartTime(), booking.getEndTime());
         }
 }
@@ -5,6 +5,7 @@ import com.smartparking.entity.Otp;
 import com.smartparking.entity.User;
 import com.smartparking.repository.OtpRepository;
 import com.smartparking.repository.UserRepository;
+import com.smartparking.security.CustomUserDetailsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -22,6 +23,7 @@ public class ForgotPasswordService {
     private final OtpRepository otpRepository;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
+    private final CustomUserDetailsService userDetailsService;
 
     @Transactional
     public void generateAndSendOtp(String email) {
@@ -73,6 +75,7 @@ public class ForgotPasswordService {
 
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
 
         // Optional: Invalidate OTP after successful reset
         Otp otp = otpRepository.findByEmail(request.getEmail()).orElseThrow();
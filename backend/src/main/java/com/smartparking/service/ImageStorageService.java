@@ -1,98 +1,506 @@
 package com.smartparking.service;
 
-import com.smartparking.exception.NotFoundException;
 import com.smartparking.entity.ImageDirectoryType;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import com.smartparking.storage.BlobStore;
+import com.smartparking.util.ImageResizer;
+import com.smartparking.util.TtlCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+/**
+ * Stores uploaded images in the configured {@link BlobStore}.
+ * <p>
+ * Submissions with images go through two steps, both before any transaction
+ * starts so that no database connection is held while bytes are copied:
+ * {@link #stage} writes every file of the request in parallel into a local
+ * staging folder, and {@link StagedImages#promote} puts them into the store. A
+ * failed upload fails the request before anything is saved; if the transaction
+ * that follows rolls back, the stored files are simply left unreferenced, which
+ * is harmless because a key only ever holds the bytes it is named after. With
+ * the local store, keep staging on the same disk so the second step is a rename.
+ * <p>
+ * Files are content-addressed: an image is named after the SHA-256 of its bytes,
+ * so uploading the same photo twice stores it once and a URL never changes
+ * meaning. After an image is in place, smaller JPEG renditions (see
+ * {@link Derivative}) are stored next to it in the background. Until they
+ * exist, their URLs serve the original instead.
+ */
 @Service
 public class ImageStorageService {
 
-    private final Path rootLocation = Paths.get("uploaded-images");
-    private String basePath = "D:\\Infosys\\upload";
+    // Early uploads stored the absolute Windows path instead of a URL
+    private static final String LEGACY_BASE_PATH = "D:\\Infosys\\upload";
+    // Files saved through store(), served under /api/images/
+    private static final String STORED_FOLDER = "api-images";
+    private static final long TRANSFER_CHUNK = 1 << 20;
+    private static final Duration STALE_STAGING_AGE = Duration.ofHours(1);
+    private static final Pattern CONTENT_NAME = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,10}");
+    private static final Pattern UNSAFE_NAME_CHARS = Pattern.compile("[^A-Za-z0-9._-]");
+    private static final int URL_CACHE_ENTRIES = 10_000;
 
-    public ImageStorageService() {
+    /**
+     * Downscaled JPEG renditions stored beside each original as
+     * {@code <original name><suffix>}.
+     */
+    public enum Derivative {
+        THUMBNAIL(".thumb.jpg"),
+        MEDIUM(".medium.jpg");
+
+        private final String suffix;
+
+        Derivative(String suffix) {
+            this.suffix = suffix;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+    }
+
+    /**
+     * The stored object behind a request. {@code provisional} when it is an
+     * original standing in for a rendition that does not exist yet.
+     */
+    public record ReadTarget(String key, boolean provisional) {
+    }
+
+    private final BlobStore blobStore;
+    private final Path stagingPath;
+    private final ThreadPoolExecutor uploadExecutor;
+    private final Map<Derivative, Integer> derivativeSizes = new EnumMap<>(Derivative.class);
+    private final Duration directReadTtl;
+    // Renditions never disappear once written, so only their presence is remembered
+    private final TtlCache<String, Boolean> knownRenditions = new TtlCache<>(URL_CACHE_ENTRIES);
+    private final TtlCache<String, URI> directReadUrls = new TtlCache<>(URL_CACHE_ENTRIES);
+
+    public ImageStorageService(BlobStore blobStore,
+            @Value("${image.upload.staging-path:${java.io.tmpdir}/smart-parking-staging}") String stagingPath,
+            @Value("${image.upload.threads:4}") int threads,
+            @Value("${image.upload.queue-size:64}") int queueSize,
+            @Value("${image.derivatives.thumbnail-size:480}") int thumbnailSize,
+            @Value("${image.derivatives.medium-size:1280}") int mediumSize,
+            @Value("${image.storage.direct-read-ttl-seconds:3600}") long directReadTtlSeconds) {
+        this.blobStore = blobStore;
+        this.stagingPath = Paths.get(stagingPath);
+        this.derivativeSizes.put(Derivative.THUMBNAIL, thumbnailSize);
+        this.derivativeSizes.put(Derivative.MEDIUM, mediumSize);
+        this.directReadTtl = Duration.ofSeconds(directReadTtlSeconds);
         try {
-            Files.createDirectories(rootLocation);
+            Files.createDirectories(this.stagingPath);
         } catch (IOException e) {
             throw new RuntimeException("Could not initialize storage", e);
         }
+        // When every writer is busy and the queue is full the request thread writes its own file
+        this.uploadExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "image-upload");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     public String store(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new RuntimeException("Failed to store empty file.");
+        }
+        String originalName = file.getOriginalFilename() == null ? ""
+                : Paths.get(file.getOriginalFilename()).getFileName().toString();
+        String filename = UUID.randomUUID() + "_" + UNSAFE_NAME_CHARS.matcher(originalName).replaceAll("_");
+        Path staged = stagingPath.resolve(UUID.randomUUID().toString());
         try {
-            if (file.isEmpty()) {
-                throw new RuntimeException("Failed to store empty file.");
-            }
-            String filename = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-            Files.copy(file.getInputStream(), this.rootLocation.resolve(filename));
+            Files.copy(file.getInputStream(), staged);
+            blobStore.putFile(storedKey(filename), staged, contentType(filename));
             return filename;
         } catch (IOException e) {
             throw new RuntimeException("Failed to store file " + file.getOriginalFilename(), e);
+        } finally {
+            deleteQuietly(staged);
         }
     }
 
-    public String saveFile(MultipartFile file, Long ownerId, ImageDirectoryType type) {
-        if (file == null || file.isEmpty()) {
+    /**
+     * Moves a file that {@link #store} saved under its old local folder to where
+     * {@link #resolveStored} finds it, so its /api/images/ URL keeps working.
+     * Returns false and leaves the file alone when the name is not one store()
+     * hands out or the store already holds that name.
+     */
+    public boolean adoptStored(Path file) throws IOException {
+        String filename = file.getFileName().toString();
+        if (resolveStored(filename) == null || blobStore.exists(storedKey(filename))) {
+            return false;
+        }
+        blobStore.putFile(storedKey(filename), file, contentType(filename));
+        return true;
+    }
+
+    /**
+     * Puts a file saved under the local uploads folder {@code root}, from before
+     * the store was configured, at the key its /uploads/ URL resolves to, and
+     * deletes the local copy. Returns false and leaves the file alone when its path
+     * is not a valid key or the store already holds that key.
+     */
+    public boolean adoptUpload(Path root, Path file) throws IOException {
+        String key = root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/");
+        if (!BlobStore.isValidKey(key) || blobStore.exists(key)) {
+            return false;
+        }
+        blobStore.putFile(key, file, contentType(key));
+        Files.deleteIfExists(file);
+        return true;
+    }
+
+    /**
+     * Writes the files to the staging folder in parallel and waits for all of them.
+     * Null or empty files keep their position with no image. If any write fails,
+     * the ones already written are deleted and the error is rethrown.
+     */
+    public StagedImages stage(List<MultipartFile> files) {
+        List<CompletableFuture<StagedFile>> writes = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            writes.add(file == null || file.isEmpty()
+                    ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.supplyAsync(() -> writeToStaging(file), uploadExecutor));
+        }
+
+        List<StagedFile> staged = new ArrayList<>(writes.size());
+        RuntimeException failure = null;
+        for (CompletableFuture<StagedFile> write : writes) {
+            try {
+                staged.add(write.join());
+            } catch (CompletionException e) {
+                staged.add(null);
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        StagedImages result = new StagedImages(staged);
+        if (failure != null) {
+            result.discard();
+            throw failure;
+        }
+        return result;
+    }
+
+    /**
+     * Canonical form of a stored image URL: {@code /uploads/...}, {@code /api/images/...}
+     * or an absolute http(s) URL. Legacy absolute paths under the upload folder and
+     * bare relative paths are mapped into /uploads. URLs this service hands out are
+     * already canonical; anything else should pass through here before it is saved.
+     */
+    public static String normalizeUrl(String url) {
+        if (url == null) {
             return null;
         }
+        if (url.startsWith(LEGACY_BASE_PATH)) {
+            return "/uploads" + url.substring(LEGACY_BASE_PATH.length()).replace('\\', '/');
+        }
+        if (url.startsWith("/uploads") || url.startsWith("/api/images") || url.startsWith("http")) {
+            return url;
+        }
+        return "/uploads/" + url;
+    }
 
-        try {
-            // Use local system path as requested by user
-            Path path = Paths.get(
-                    basePath,
-                    type.getFolderName(),
-                    ownerId.toString(),
-                    "images");
-
-            Files.createDirectories(path);
-
-            String originalFileName = file.getOriginalFilename();
-            String cleanFileName = Paths.get(originalFileName).getFileName().toString();
-            String extension = "";
-            int dotIndex = cleanFileName.lastIndexOf('.');
-            if (dotIndex > 0) {
-                extension = cleanFileName.substring(dotIndex);
+    /**
+     * URL of a rendition of an uploaded image. Images stored before content
+     * addressing have no renditions, so their own URL is returned.
+     */
+    public static String derivativeUrl(String url, Derivative derivative) {
+        if (url == null || !url.startsWith("/uploads/")) {
+            return url;
+        }
+        String fileName = url.substring(url.lastIndexOf('/') + 1);
+        return CONTENT_NAME.matcher(fileName).matches() ? url + derivative.getSuffix() : url;
+    }
+
+    /**
+     * Whether the file is named after its content, as an original or a rendition.
+     */
+    public static boolean isContentAddressed(String fileName) {
+        String original = originalOf(fileName);
+        return CONTENT_NAME.matcher(original != null ? original : fileName).matches();
+    }
+
+    /**
+     * The object behind an /uploads/** path, or null when the path is not a valid
+     * key. A rendition that has not been written yet resolves to its original.
+     */
+    public ReadTarget resolveUpload(String relativePath) {
+        String key = relativePath.replaceFirst("^/+", "");
+        if (!BlobStore.isValidKey(key)) {
+            return null;
+        }
+        String original = originalOf(key);
+        if (original == null || knownRenditions.get(key) != null) {
+            return new ReadTarget(key, false);
+        }
+        if (blobStore.exists(key)) {
+            knownRenditions.put(key, Boolean.TRUE, Long.MAX_VALUE);
+            return new ReadTarget(key, false);
+        }
+        return new ReadTarget(original, true);
+    }
+
+    /**
+     * The object saved by {@link #store} under {@code filename}, or null when the
+     * name is not one this service hands out.
+     */
+    public ReadTarget resolveStored(String filename) {
+        if (filename.length() < 2 || filename.indexOf('/') >= 0 || !BlobStore.isValidKey(filename)) {
+            return null;
+        }
+        return new ReadTarget(storedKey(filename), false);
+    }
+
+    /**
+     * The local file holding the object, when the store keeps files on this machine.
+     */
+    public Optional<Path> localFile(String key) {
+        return blobStore.localFile(key);
+    }
+
+    /**
+     * A presigned URL the client can fetch the object from directly, when the
+     * store supports that. URLs are reused for half their lifetime.
+     */
+    public Optional<URI> directReadUrl(String key) {
+        URI cached = directReadUrls.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<URI> url = blobStore.directReadUrl(key, directReadTtl);
+        url.ifPresent(uri -> directReadUrls.put(key, uri,
+                System.currentTimeMillis() + directReadTtl.toMillis() / 2));
+        return url;
+    }
+
+    /**
+     * How long a client may reuse a redirect to a {@link #directReadUrl}: a
+     * quarter of the URL's lifetime, so a cached redirect never outlives the
+     * URL it points to.
+     */
+    public Duration directReadCacheTime() {
+        return directReadTtl.dividedBy(4);
+    }
+
+    private static String storedKey(String filename) {
+        return STORED_FOLDER + "/" + filename.substring(0, 2) + "/" + filename;
+    }
+
+    private static String contentType(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    /**
+     * For a path to a rendition, the path of its original; null for any other path.
+     */
+    public static String originalOf(String path) {
+        for (Derivative derivative : Derivative.values()) {
+            if (path.endsWith(derivative.getSuffix())) {
+                String original = path.substring(0, path.length() - derivative.getSuffix().length());
+                String fileName = original.substring(original.lastIndexOf('/') + 1);
+                return CONTENT_NAME.matcher(fileName).matches() ? original : null;
             }
+        }
+        return null;
+    }
 
-            String newFileName = UUID.randomUUID() + extension;
-            Path filePath = path.resolve(newFileName);
+    // Staged files left behind by a crash or a request that never got to its transaction
+    @Scheduled(fixedDelayString = "${image.upload.staging-sweep-ms:3600000}")
+    public void purgeStaleStaging() {
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - STALE_STAGING_AGE.toMillis());
+        try (Stream<Path> staged = Files.list(stagingPath)) {
+            staged.filter(path -> {
+                try {
+                    return Files.getLastModifiedTime(path).compareTo(cutoff) < 0;
+                } catch (IOException e) {
+                    return false;
+                }
+            }).forEach(ImageStorageService::deleteQuietly);
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not sweep image staging folder: " + e.getMessage());
+        }
+    }
 
-            Files.copy(
-                    file.getInputStream(),
-                    filePath,
-                    StandardCopyOption.REPLACE_EXISTING);
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
 
-            // Return the static resource URL path
-            // Map /uploads/** to the local file system D:\\Infosys\\upload\\
-            return "/uploads/" + type.getFolderName() + "/" + ownerId + "/images/" + newFileName;
+    private StagedFile writeToStaging(MultipartFile file) {
+        String extension = "";
+        if (file.getOriginalFilename() != null) {
+            String cleanFileName = Paths.get(file.getOriginalFilename()).getFileName().toString();
+            int dotIndex = cleanFileName.lastIndexOf('.');
+            if (dotIndex > 0) {
+                extension = cleanFileName.substring(dotIndex).toLowerCase(Locale.ROOT);
+            }
+        }
+        if (!EXTENSION.matcher(extension).matches()) {
+            extension = "";
+        }
+        Path staged = stagingPath.resolve(UUID.randomUUID() + extension);
 
+        MessageDigest sha256 = sha256();
+        try (ReadableByteChannel in = Channels.newChannel(new DigestInputStream(file.getInputStream(), sha256));
+                FileChannel out = FileChannel.open(staged, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(in, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+            }
         } catch (IOException e) {
+            deleteQuietly(staged);
             throw new RuntimeException("Failed to store file " + file.getOriginalFilename(), e);
         }
+        return new StagedFile(staged, HexFormat.of().formatHex(sha256.digest()) + extension);
     }
 
-    public Resource loadAsResource(String filename) {
+    // Runs on the upload pool once an original is in place; a failure only costs the renditions
+    private void createDerivatives(String key) {
         try {
-            Path file = rootLocation.resolve(filename);
-            Resource resource = new UrlResource(file.toUri());
-            if (resource.exists() || resource.isReadable()) {
-                return resource;
-            } else {
-                throw new RuntimeException("Could not read file: " + filename);
+            BufferedImage image = null;
+            for (Derivative derivative : Derivative.values()) {
+                String target = key + derivative.getSuffix();
+                if (blobStore.exists(target)) {
+                    continue;
+                }
+                if (image == null) {
+                    image = decode(key, Collections.max(derivativeSizes.values()));
+                    if (image == null) {
+                        return;
+                    }
+                }
+                Path staged = stagingPath.resolve(UUID.randomUUID() + derivative.getSuffix());
+                try {
+                    ImageResizer.writeJpeg(image, derivativeSizes.get(derivative), staged);
+                    blobStore.putFile(target, staged, MediaType.IMAGE_JPEG_VALUE);
+                } finally {
+                    deleteQuietly(staged);
+                }
             }
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("Could not read file: " + filename, e);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("⚠️ Could not create renditions of " + key + ": " + e.getMessage());
+        }
+    }
+
+    private BufferedImage decode(String key, int maxEdge) throws IOException {
+        Optional<Path> file = blobStore.localFile(key);
+        if (file.isPresent()) {
+            return ImageResizer.read(file.get(), maxEdge);
+        }
+        try (InputStream in = blobStore.open(key)) {
+            return ImageResizer.read(in, maxEdge);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not delete " + path + ": " + e.getMessage());
+        }
+    }
+
+    private record StagedFile(Path path, String fileName) {
+    }
+
+    /**
+     * Files of one submission, written but not yet visible. Call {@link #promote}
+     * before the transaction that saves their URLs.
+     */
+    public final class StagedImages {
+
+        private final List<StagedFile> files;
+
+        private StagedImages(List<StagedFile> files) {
+            this.files = files;
+        }
+
+        /**
+         * Puts every file into the store and returns its public URL, null where no
+         * file was given. Keys are spread over 256 folders by the first byte of the
+         * hash and served as /uploads/<key>. The staging folder is emptied whether
+         * or not this succeeds; on failure the request should fail before saving.
+         */
+        public List<String> promote(ImageDirectoryType type) {
+            List<String> urls = new ArrayList<>(files.size());
+            try {
+                for (StagedFile file : files) {
+                    if (file == null) {
+                        urls.add(null);
+                        continue;
+                    }
+                    String key = type.getFolderName() + "/" + file.fileName().substring(0, 2) + "/" + file.fileName();
+                    if (blobStore.exists(key)) {
+                        // Same bytes already stored
+                        Files.delete(file.path());
+                    } else {
+                        blobStore.putFile(key, file.path(), contentType(file.fileName()));
+                    }
+                    uploadExecutor.execute(() -> createDerivatives(key));
+                    urls.add("/uploads/" + key);
+                }
+                return urls;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to store uploaded images", e);
+            } finally {
+                discard();
+            }
+        }
+
+        /**
+         * Deletes whatever is still staged. Safe to call more than once.
+         */
+        public void discard() {
+            files.stream().filter(file -> file != null).forEach(file -> deleteQuietly(file.path()));
         }
     }
 }
@@ -0,0 +1,73 @@
+package com.smartparking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites stored image URLs to the canonical form of
+ * {@link ImageStorageService#normalizeUrl}, so read paths can return them as
+ * they are. Only URLs that are not canonical yet are selected, so after the
+ * first run this is one scan that finds nothing.
+ */
+@Service
+public class ImageUrlMigrationService {
+
+    // Element-collection tables of ParkingSpot.imageUrls and ProviderApplication.imageUrls
+    private static final List<String> TABLES = List.of("parking_spot_images", "parking_images");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean runOnStartup;
+
+    public ImageUrlMigrationService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${image.url-migration.on-startup:true}") boolean runOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.runOnStartup = runOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (runOnStartup) {
+            migrate();
+        }
+    }
+
+    /**
+     * Normalises every stored image URL and returns the number of rows changed.
+     */
+    public int migrate() {
+        Integer changed = transactionTemplate.execute(status -> {
+            int rows = 0;
+            for (String table : TABLES) {
+                List<String> legacy = jdbcTemplate.queryForList("SELECT DISTINCT image_url FROM " + table
+                        + " WHERE image_url NOT LIKE '/uploads%' AND image_url NOT LIKE '/api/images%'"
+                        + " AND image_url NOT LIKE 'http%'", String.class);
+                List<Object[]> updates = new ArrayList<>(legacy.size());
+                for (String url : legacy) {
+                    String normalized = ImageStorageService.normalizeUrl(url);
+                    if (!normalized.equals(url)) {
+                        updates.add(new Object[] { normalized, url });
+                    }
+                }
+                for (int count : jdbcTemplate.batchUpdate(
+                        "UPDATE " + table + " SET image_url = ? WHERE image_url = ?", updates)) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return rows;
+        });
+        if (changed != null && changed > 0) {
+            System.out.println("🖼️ Normalised " + changed + " stored image URLs");
+        }
+        return changed != null ? changed : 0;
+    }
+}
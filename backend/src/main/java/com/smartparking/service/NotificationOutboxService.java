@@ -0,0 +1,240 @@
+package com.smartparking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartparking.dto.NotificationDTO;
+import com.smartparking.entity.NotificationOutbox;
+import com.smartparking.repository.NotificationOutboxRepository;
+import com.smartparking.util.TransactionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable outbox for user notifications.
+ * <p>
+ * Callers {@link #enqueue} a whole batch as one row inside their own transaction.
+ * A scheduled worker later claims each pending row and expands it into
+ * {@code notifications} rows with a single JDBC batch, in one transaction, so a
+ * batch is delivered exactly once even with several instances polling. Once that
+ * transaction commits, the new notifications are pushed to connected users.
+ * <p>
+ * A row that fails is retried with exponential backoff, starting at
+ * {@code notification.outbox.retry-backoff-ms} and doubling up to
+ * {@code notification.outbox.max-retry-backoff-ms}, and is marked FAILED after
+ * {@code notification.outbox.max-attempts}.
+ */
+@Service
+public class NotificationOutboxService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String INSERT_NOTIFICATION = "INSERT INTO notifications "
+            + "(user_id, title, message, type, is_read, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationPushService pushService;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+    private final ReentrantLock draining = new ReentrantLock();
+
+    public NotificationOutboxService(NotificationOutboxRepository outboxRepository,
+            JdbcTemplate jdbcTemplate,
+            NotificationPushService pushService,
+            NotificationService notificationService,
+            PlatformTransactionManager transactionManager,
+            @Value("${notification.outbox.batch-size:50}") int batchSize,
+            @Value("${notification.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${notification.outbox.retry-backoff-ms:30000}") long retryBackoffMs,
+            @Value("${notification.outbox.max-retry-backoff-ms:1800000}") long maxRetryBackoffMs) {
+        this.outboxRepository = outboxRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pushService = pushService;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+    }
+
+    public record Recipient(Long userId, String message) {
+    }
+
+    /**
+     * Queues one notification per recipient. Joins the caller's transaction, so the
+     * notifications are only delivered if the caller commits.
+     */
+    public void enqueue(String title, String type, List<Recipient> recipients) {
+        if (recipients.isEmpty()) {
+            return;
+        }
+        try {
+            outboxRepository.save(NotificationOutbox.builder()
+                    .title(title)
+                    .type(type)
+                    .recipients(MAPPER.writeValueAsString(recipients))
+                    .status(NotificationOutbox.OutboxStatus.PENDING)
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize notification recipients", e);
+        }
+    }
+
+    /**
+     * Delivers pending outbox rows that are due, oldest first. A row that fails is
+     * not picked up again in the same pass. Returns the number of rows delivered.
+     */
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-interval-ms:1000}")
+    public int drain() {
+        if (!draining.tryLock()) {
+            return 0;
+        }
+        try {
+            LocalDateTime passStart = LocalDateTime.now();
+            Set<Long> failed = new HashSet<>();
+            int delivered = 0;
+            int attempted;
+            List<Long> ids;
+            do {
+                ids = outboxRepository.findIdsByStatus(NotificationOutbox.OutboxStatus.PENDING, passStart,
+                        PageRequest.of(0, batchSize));
+                attempted = 0;
+                for (Long id : ids) {
+                    // Still pending when its failure could not be recorded either
+                    if (failed.contains(id)) {
+                        continue;
+                    }
+                    attempted++;
+                    if (deliver(id, failed)) {
+                        delivered++;
+                    }
+                }
+            } while (ids.size() == batchSize && attempted > 0);
+            return delivered;
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    private boolean deliver(Long id, Set<Long> failed) {
+        try {
+            Boolean sent = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (outboxRepository.markSent(id, now) == 0) {
+                    return false;
+                }
+                NotificationOutbox row = outboxRepository.findById(id).orElseThrow();
+                List<Recipient> recipients = readRecipients(row.getRecipients());
+                List<Long> ids = insertNotifications(row, recipients, now);
+
+                TransactionUtil.afterCommit(() -> {
+                    for (int i = 0; i < recipients.size(); i++) {
+                        notificationService.onCreated(recipients.get(i).userId(), 1);
+                        pushService.publish(recipients.get(i).userId(), NotificationDTO.builder()
+                                .id(ids.get(i))
+                                .title(row.getTitle())
+                                .message(recipients.get(i).message())
+                                .type(row.getType())
+                                .read(false)
+                                .createdAt(now)
+                                .build());
+                    }
+                });
+                return true;
+            });
+            return Boolean.TRUE.equals(sent);
+        } catch (RuntimeException e) {
+            failed.add(id);
+            recordFailure(id, e);
+            return false;
+        }
+    }
+
+    // One JDBC batch; returns the generated ids in recipient order
+    private List<Long> insertNotifications(NotificationOutbox row, List<Recipient> recipients, LocalDateTime now) {
+        Timestamp createdAt = Timestamp.valueOf(now);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_NOTIFICATION, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Recipient recipient = recipients.get(i);
+                        ps.setLong(1, recipient.userId());
+                        ps.setString(2, row.getTitle());
+                        ps.setString(3, recipient.message());
+                        ps.setString(4, row.getType());
+                        ps.setBoolean(5, false);
+                        ps.setTimestamp(6, createdAt);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return recipients.size();
+                    }
+                }, keyHolder);
+        return keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).longValue())
+                .toList();
+    }
+
+    private void recordFailure(Long id, RuntimeException error) {
+        System.out.println("❌ Notification outbox row " + id + " failed: " + error.getMessage());
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.findById(id).ifPresent(row -> {
+                row.setAttempts(row.getAttempts() + 1);
+                row.setLastError(error.getMessage() == null ? null
+                        : error.getMessage().substring(0, Math.min(255, error.getMessage().length())));
+                if (row.getAttempts() >= maxAttempts) {
+                    row.setStatus(NotificationOutbox.OutboxStatus.FAILED);
+                } else {
+                    row.setNextAttemptAt(LocalDateTime.now().plus(retryBackoff(row.getAttempts()), ChronoUnit.MILLIS));
+                }
+                outboxRepository.save(row);
+            }));
+        } catch (RuntimeException e) {
+            // Left as it was; a later pass tries the row again
+            System.out.println("❌ Could not record failure of outbox row " + id + ": " + e.getMessage());
+        }
+    }
+
+    // retryBackoffMs after the first failure, doubling after each further one
+    long retryBackoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        return Math.min(maxRetryBackoffMs, retryBackoffMs << doublings);
+    }
+
+    private static List<Recipient> readRecipients(String json) {
+        try {
+            return MAPPER.readValue(json, new TypeReference<List<Recipient>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload", e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.NotificationDTO;
+import com.smartparking.entity.Notification;
+import com.smartparking.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes new notifications to connected users over Server-Sent Events.
+ * <p>
+ * Every open stream is a {@link Connection} with a bounded queue. Publishing only
+ * offers to those queues; a small pool of sender threads does the network writes,
+ * so a slow client never blocks the producer. A client whose queue overflows is
+ * disconnected and catches up on reconnect by sending the id of the last event it
+ * received.
+ */
+@Service
+public class NotificationPushService {
+
+    private static final String HEARTBEAT = "";
+
+    private final NotificationRepository notificationRepository;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final ExecutorService senders;
+
+    private final Map<Long, Set<Connection>> connections = new ConcurrentHashMap<>();
+
+    public NotificationPushService(NotificationRepository notificationRepository,
+            @Value("${notification.push.buffer-size:100}") int bufferSize,
+            @Value("${notification.push.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${notification.push.sender-threads:2}") int senderThreads) {
+        this.notificationRepository = notificationRepository;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "notification-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a stream for the user. With {@code lastEventId} set, notifications created
+     * after it are replayed first; if more were missed than fit in the buffer the
+     * client gets a single {@code resync} event and should reload its feed instead.
+     */
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        return register(userId, new SseEmitter(timeoutMillis), lastEventId);
+    }
+
+    SseEmitter register(Long userId, SseEmitter emitter, Long lastEventId) {
+        Connection connection = new Connection(userId, emitter);
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(connection::close);
+        emitter.onError(error -> connection.close());
+        connections.computeIfAbsent(userId, id -> new CopyOnWriteArraySet<>()).add(connection);
+
+        List<SseEmitter.SseEventBuilder> replay = new ArrayList<>();
+        long replayedUpTo = lastEventId == null ? Long.MAX_VALUE : lastEventId;
+        if (lastEventId != null) {
+            List<Notification> missed = notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                    userId, lastEventId, PageRequest.of(0, bufferSize + 1));
+            if (missed.size() > bufferSize) {
+                replay.add(SseEmitter.event().name("resync").data("reload"));
+                replayedUpTo = Long.MAX_VALUE;
+            } else {
+                for (Notification notification : missed) {
+                    replay.add(toEvent(toDTO(notification)));
+                    replayedUpTo = notification.getId();
+                }
+            }
+        }
+        connection.finishReplay(replay, replayedUpTo);
+        return emitter;
+    }
+
+    /**
+     * Hands the notification to every open stream of its user. Call once the
+     * notification row is committed.
+     */
+    public void publish(Long userId, NotificationDTO notification) {
+        Set<Connection> userConnections = connections.get(userId);
+        if (userConnections == null) {
+            return;
+        }
+        for (Connection connection : userConnections) {
+            connection.offerLive(notification.getId(), toEvent(notification));
+        }
+    }
+
+    public int connectionCount() {
+        return connections.values().stream().mapToInt(Set::size).sum();
+    }
+
+    // Keeps idle streams open through proxies and detects dead clients
+    @Scheduled(fixedDelayString = "${notification.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        connections.values().forEach(userConnections -> userConnections
+                .forEach(connection -> connection.offerHeartbeat(SseEmitter.event().comment(HEARTBEAT))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(userConnections -> userConnections.forEach(c -> c.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    static NotificationDTO toDTO(Notification notification) {
+        return NotificationDTO.builder()
+                .id(notification.getId())
+                .title(notification.getTitle())
+                .message(notification.getMessage())
+                .type(notification.getType())
+                .read(notification.isRead())
+                .createdAt(notification.getCreatedAt())
+                .build();
+    }
+
+    private static SseEmitter.SseEventBuilder toEvent(NotificationDTO notification) {
+        return SseEmitter.event()
+                .id(String.valueOf(notification.getId()))
+                .name("notification")
+                .data(notification);
+    }
+
+    private class Connection {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        // Live events that arrive while the replay query runs, as {id, event}
+        private List<Object[]> pendingLive = new ArrayList<>();
+
+        Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        synchronized void offerLive(Long id, SseEmitter.SseEventBuilder event) {
+            if (pendingLive != null) {
+                pendingLive.add(new Object[] { id, event });
+            } else {
+                enqueue(event);
+            }
+        }
+
+        synchronized void finishReplay(List<SseEmitter.SseEventBuilder> replay, long replayedUpTo) {
+            replay.forEach(this::enqueue);
+            for (Object[] live : pendingLive) {
+                // Already covered by the replay if it was committed before the query ran
+                if (replayedUpTo == Long.MAX_VALUE || (Long) live[0] > replayedUpTo) {
+                    enqueue((SseEmitter.SseEventBuilder) live[1]);
+                }
+            }
+            pendingLive = null;
+        }
+
+        void offerHeartbeat(SseEmitter.SseEventBuilder event) {
+            // A full queue already has something to send
+            if (queue.offer(event)) {
+                schedule();
+            }
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                System.out.println("⚠️ Notification stream for user " + userId + " fell behind; disconnecting");
+                emitter.complete();
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                senders.execute(this::flush);
+            }
+        }
+
+        private void flush() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+            }
+            // Something may have been queued after the last poll
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                queue.clear();
+                connections.computeIfPresent(userId, (id, set) -> {
+                    set.remove(this);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.smartparking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Prunes the notifications table on a schedule.
+ * <p>
+ * Two passes run: rows older than {@code max-age-days}, then each user's rows
+ * beyond the newest {@code max-per-user}. Both walk an index in small chunks and
+ * delete each chunk by primary key in its own short statement, so no lock is held
+ * for longer than one chunk. With archiving enabled, every chunk is appended to a
+ * gzipped NDJSON file before it is deleted.
+ */
+@Service
+public class NotificationRetentionService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final String COLUMNS = "id, user_id, title, message, type, is_read, created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationService notificationService;
+    private final Counter scannedCounter;
+    private final Counter deletedCounter;
+    private final Counter archivedCounter;
+
+    @Value("${notification.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.retention.max-age-days:90}")
+    private int maxAgeDays;
+
+    @Value("${notification.retention.max-per-user:500}")
+    private int maxPerUser;
+
+    @Value("${notification.retention.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${notification.retention.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    @Value("${notification.retention.archive.dir:archive/notifications}")
+    private String archiveDir;
+
+    public NotificationRetentionService(JdbcTemplate jdbcTemplate, NotificationService notificationService,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationService = notificationService;
+        this.scannedCounter = Counter.builder("notifications.retention.scanned")
+                .description("Notification rows read by the retention job").register(meterRegistry);
+        this.deletedCounter = Counter.builder("notifications.retention.deleted")
+                .description("Notification rows deleted by the retention job").register(meterRegistry);
+        this.archivedCounter = Counter.builder("notifications.retention.archived")
+                .description("Notification rows written to the archive before deletion").register(meterRegistry);
+    }
+
+    public record RetentionResult(long scanned, long deleted) {
+    }
+
+    @Scheduled(cron = "${notification.retention.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            run(LocalDateTime.now());
+        }
+    }
+
+    public RetentionResult run(LocalDateTime now) {
+        try (Archive archive = archiveEnabled ? Archive.open(Paths.get(archiveDir), now) : null) {
+            long[] totals = new long[2];
+            pruneByAge(now.minusDays(maxAgeDays), archive, totals);
+            pruneByUserCap(archive, totals);
+
+            if (totals[1] > 0) {
+                // Deleted rows may have been unread
+                notificationService.invalidateUnreadCounts();
+            }
+            System.out.println("🧹 Notification retention: scanned " + totals[0] + ", deleted " + totals[1]);
+            return new RetentionResult(totals[0], totals[1]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write notification archive", e);
+        }
+    }
+
+    // Walks the primary key in chunks; ids grow with created_at, so the walk stops at the first chunk with nothing old
+    private void pruneByAge(LocalDateTime cutoff, Archive archive, long[] totals) throws IOException {
+        long lastId = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT " + COLUMNS + " FROM notifications WHERE id > ? ORDER BY id LIMIT ?", lastId, chunkSize);
+            if (rows.isEmpty()) {
+                return;
+            }
+            count(totals, rows.size(), 0);
+            lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+
+            List<Map<String, Object>> expired = new ArrayList<>();
+            for (Map<String, Object> row : rows) {
+                Timestamp createdAt = (Timestamp) row.get("created_at");
+                if (createdAt != null && createdAt.toLocalDateTime().isBefore(cutoff)) {
+                    expired.add(row);
+                }
+            }
+            if (expired.isEmpty()) {
+                return;
+            }
+            delete(expired, archive, totals);
+        }
+    }
+
+    private void pruneByUserCap(Archive archive, long[] totals) throws IOException {
+        List<Long> users = jdbcTemplate.queryForList(
+                "SELECT user_id FROM notifications GROUP BY user_id HAVING COUNT(*) > ?", Long.class, maxPerUser);
+        for (Long userId : users) {
+            // The newest row that falls outside the cap; it and everything older goes
+            List<Map<String, Object>> boundary = jdbcTemplate.queryForList(
+                    "SELECT id, created_at FROM notifications WHERE user_id = ? "
+                            + "ORDER BY created_at DESC, id DESC LIMIT 1 OFFSET ?", userId, maxPerUser);
+            if (boundary.isEmpty()) {
+                continue;
+            }
+            Timestamp boundaryTime = (Timestamp) boundary.get(0).get("created_at");
+            long boundaryId = ((Number) boundary.get(0).get("id")).longValue();
+
+            while (true) {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "SELECT " + COLUMNS + " FROM notifications WHERE user_id = ? "
+                                + "AND (created_at < ? OR (created_at = ? AND id <= ?)) "
+                                + "ORDER BY created_at, id LIMIT ?",
+                        userId, boundaryTime, boundaryTime, boundaryId, chunkSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                count(totals, rows.size(), 0);
+                delete(rows, archive, totals);
+            }
+        }
+    }
+
+    private void delete(List<Map<String, Object>> rows, Archive archive, long[] totals) throws IOException {
+        if (archive != null) {
+            archive.write(rows);
+            archivedCounter.increment(rows.size());
+        }
+        List<Object> ids = new ArrayList<>(rows.size());
+        rows.forEach(row -> ids.add(row.get("id")));
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        int deleted = jdbcTemplate.update("DELETE FROM notifications WHERE id IN (" + placeholders + ")",
+                ids.toArray());
+        count(totals, 0, deleted);
+    }
+
+    private void count(long[] totals, long scanned, long deleted) {
+        totals[0] += scanned;
+        totals[1] += deleted;
+        scannedCounter.increment(scanned);
+        deletedCounter.increment(deleted);
+    }
+
+    private static class Archive implements AutoCloseable {
+
+        private final OutputStream out;
+
+        private Archive(OutputStream out) {
+            this.out = out;
+        }
+
+        static Archive open(Path dir, LocalDateTime now) throws IOException {
+            Files.createDirectories(dir);
+            Path file = dir.resolve("notifications-" + FILE_STAMP.format(now) + ".ndjson.gz");
+            return new Archive(new GZIPOutputStream(Files.newOutputStream(file), true));
+        }
+
+        void write(List<Map<String, Object>> rows) throws IOException {
+            for (Map<String, Object> row : rows) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                row.forEach((column, value) -> line.put(column.toLowerCase(),
+                        value instanceof Timestamp timestamp ? timestamp.toLocalDateTime().toString() : value));
+                try {
+                    out.write(MAPPER.writeValueAsBytes(line));
+                } catch (JsonProcessingException e) {
+                    throw new IOException(e);
+                }
+                out.write('\n');
+            }
+            // Archived rows are flushed out before they are deleted
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.CursorPageDTO;
+import com.smartparking.dto.NotificationDTO;
+import com.smartparking.entity.Notification;
+import com.smartparking.repository.NotificationRepository;
+import com.smartparking.util.CursorUtil;
+import com.smartparking.util.TransactionUtil;
+import com.smartparking.util.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Notification feed and unread counts.
+ * <p>
+ * Unread counts are served from a per-user counter that is loaded with one COUNT
+ * the first time it is needed and then adjusted as notifications are created, read
+ * or deleted. Counters expire after {@code notification.unread-count.ttl-seconds}
+ * and are reloaded, which also corrects any drift from changes made elsewhere.
+ */
+@Service
+public class NotificationService {
+
+    private final NotificationRepository notificationRepository;
+    private final TtlCache<Long, AtomicLong> unreadCounts;
+    private final long ttlMillis;
+
+    public NotificationService(NotificationRepository notificationRepository,
+            @Value("${notification.unread-count.max-users:10000}") int maxUsers,
+            @Value("${notification.unread-count.ttl-seconds:600}") long ttlSeconds) {
+        this.notificationRepository = notificationRepository;
+        this.unreadCounts = new TtlCache<>(maxUsers);
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public CursorPageDTO<NotificationDTO> getFeed(Long userId, String cursor, Integer size) {
+        int pageSize = CursorUtil.clampPageSize(size);
+        CursorUtil.TimeCursor after = CursorUtil.decodeTimeCursor(cursor);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<Notification> rows = after == null
+                ? notificationRepository.findFeed(userId, limit)
+                : notificationRepository.findFeedAfter(userId, after.time(), after.id(), limit);
+
+        // One extra row is fetched to learn whether another page follows
+        boolean hasMore = rows.size() > pageSize;
+        List<Notification> page = hasMore ? rows.subList(0, pageSize) : rows;
+        Notification last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return CursorPageDTO.<NotificationDTO>builder()
+                .items(page.stream().map(NotificationPushService::toDTO).collect(Collectors.toList()))
+                .nextCursor(hasMore ? CursorUtil.encode(last.getCreatedAt(), last.getId()) : null)
+                .build();
+    }
+
+    public long getUnreadCount(Long userId) {
+        AtomicLong count = unreadCounts.get(userId);
+        if (count == null) {
+            count = new AtomicLong(notificationRepository.countByUserIdAndIsReadFalse(userId));
+            unreadCounts.put(userId, count, System.currentTimeMillis() + ttlMillis);
+        }
+        return Math.max(0, count.get());
+    }
+
+    @Transactional
+    public void markAsRead(Long notificationId) {
+        Notification notification = notificationRepository.findById(notificationId)
+                .orElseThrow(() -> new RuntimeException("Notification not found"));
+        if (!notification.isRead()) {
+            notification.setRead(true);
+            notificationRepository.save(notification);
+            adjustAfterCommit(notification.getUser().getId(), -1);
+        }
+    }
+
+    @Transactional
+    public int markAllAsRead(Long userId) {
+        int updated = notificationRepository.markAllRead(userId);
+        TransactionUtil.afterCommit(() -> unreadCounts.invalidate(userId));
+        return updated;
+    }
+
+    @Transactional
+    public void delete(Long notificationId) {
+        notificationRepository.findById(notificationId).ifPresent(notification -> {
+            notificationRepository.delete(notification);
+            if (!notification.isRead()) {
+                adjustAfterCommit(notification.getUser().getId(), -1);
+            }
+        });
+    }
+
+    /**
+     * Records unread notifications that were just committed for the user.
+     */
+    public void onCreated(Long userId, int count) {
+        adjust(userId, count);
+    }
+
+    /**
+     * Forgets every counter; used after rows were removed in bulk.
+     */
+    public void invalidateUnreadCounts() {
+        unreadCounts.invalidateAll();
+    }
+
+    private void adjustAfterCommit(Long userId, long delta) {
+        TransactionUtil.afterCommit(() -> adjust(userId, delta));
+    }
+
+    // Only counters already loaded are adjusted; others load the right value when first read
+    private void adjust(Long userId, long delta) {
+        AtomicLong count = unreadCounts.get(userId);
+        if (count != null) {
+            count.addAndGet(delta);
+        }
+    }
+}
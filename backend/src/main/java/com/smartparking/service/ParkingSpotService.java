@@ -1,8 +1,12 @@
 package com.smartparking.service;
 
+import com.smartparking.dto.CursorPageDTO;
 import com.smartparking.dto.ParkingSpotDTO;
+import com.smartparking.dto.SpotDistance;
 import com.smartparking.dto.UpdateParkingSpotDTO;
+import com.smartparking.util.CursorUtil;
 import com.smartparking.util.GoogleMapsUtil;
+import com.smartparking.util.TransactionUtil;
 import com.smartparking.dto.ParkingSpotResponseDTO;
 import com.smartparking.entity.ImageDirectoryType;
 import com.smartparking.entity.ParkingSpot;
@@ -10,17 +14,24 @@ import com.smartparking.entity.Provider;
 import com.smartparking.entity.User;
 import com.smartparking.repository.ParkingSpotRepository;
 import com.smartparking.repository.ProviderRepository;
-import com.smartparking.repository.UserRepository;
-import com.smartparking.repository.NotificationRepository;
+import com.smartparking.repository.PaymentRepository;
 import com.smartparking.repository.BookingRepository;
+import com.smartparking.security.CurrentUser;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,11 +40,23 @@ import java.util.stream.Collectors;
 public class ParkingSpotService {
 
     private final ParkingSpotRepository parkingSpotRepository;
-    private final UserRepository userRepository;
     private final ProviderRepository providerRepository;
     private final ImageStorageService imageStorageService;
     private final BookingRepository bookingRepository;
-    private final NotificationRepository notificationRepository;
+    private final PaymentRepository paymentRepository;
+    private final NotificationOutboxService notificationOutboxService;
+    private final AdminStatsService adminStatsService;
+    private final BookingRollupService rollupService;
+    private final ParkingSpotSpatialIndex spatialIndex;
+    private final BookingCapacityLedger capacityLedger;
+    private final BookingAvailabilityEngine availabilityEngine;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final int MAX_NEARBY_PAGE_SIZE = 500;
+    private static final int BULK_UPDATE_CHUNK = 1000;
+
+    @Value("${parking.nearby.use-spatial-index:true}")
+    private boolean useSpatialIndex;
 
     // addParkingSpot logic moved to ProviderService.addProviderWithSpot
 
@@ -45,45 +68,31 @@ public class ParkingSpotService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional
+    // Images are written before the transaction starts, so no connection is held during the upload
+    @org.springframework.transaction.annotation.Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ParkingSpot save(ParkingSpotDTO dto) {
 
         // 1️⃣ Get logged-in user
-        String email = ((UserDetails) SecurityContextHolder
-                .getContext()
-                .getAuthentication()
-                .getPrincipal())
-                .getUsername();
-
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // 2️⃣ Get provider for user
-        Provider provider = providerRepository.findByUser(user)
-                .orElseThrow(() -> new RuntimeException("Provider not found for user"));
+        User user = CurrentUser.get();
 
-        // 3️⃣ Save images
-        List<String> imageUrls = new ArrayList<>();
+        // 2️⃣ Stage images
+        List<MultipartFile> images = new ArrayList<>();
+        images.add(dto.getParkingAreaImage());
+        images.add(dto.getGateImage());
+        if (dto.getSurroundingImage() != null) {
+            images.add(dto.getSurroundingImage());
+        }
+        // Stored before the rows; a rollback leaves them unreferenced, which is harmless
+        List<String> imageUrls = imageStorageService.stage(images).promote(ImageDirectoryType.PARKING_SPOT);
 
-        imageUrls.add(
-                imageStorageService.saveFile(
-                        dto.getParkingAreaImage(),
-                        provider.getId(),
-                        ImageDirectoryType.PARKING_SPOT));
+        return transactionTemplate.execute(status -> createSpot(dto, user, imageUrls));
+    }
 
-        imageUrls.add(
-                imageStorageService.saveFile(
-                        dto.getGateImage(),
-                        provider.getId(),
-                        ImageDirectoryType.PARKING_SPOT));
+    private ParkingSpot createSpot(ParkingSpotDTO dto, User user, List<String> imageUrls) {
 
-        if (dto.getSurroundingImage() != null) {
-            imageUrls.add(
-                    imageStorageService.saveFile(
-                            dto.getSurroundingImage(),
-                            provider.getId(),
-                            ImageDirectoryType.PARKING_SPOT));
-        }
+        // 3️⃣ Get provider for user
+        Provider provider = providerRepository.findByUser(user)
+                .orElseThrow(() -> new RuntimeException("Provider not found for user"));
 
         // 4️⃣ Create ParkingSpot entity
 
@@ -136,7 +145,10 @@ public class ParkingSpotService {
         spot.setStatus(ParkingSpot.ParkingStatus.ACTIVE);
 
         // 5️⃣ Save
-        return parkingSpotRepository.save(spot);
+        ParkingSpot savedSpot = parkingSpotRepository.save(spot);
+        adminStatsService.onSpotCreated();
+        spatialIndex.sync(savedSpot);
+        return savedSpot;
     }
 
     public ParkingSpotResponseDTO getParkingSpotById(Long id) {
@@ -154,38 +166,11 @@ public class ParkingSpotService {
             ParkingSpot.ParkingStatus newStatus = ParkingSpot.ParkingStatus.valueOf(status);
             spot.setStatus(newStatus);
             parkingSpotRepository.save(spot);
+            spatialIndex.sync(spot);
 
             // If Deactivating (MAINTENANCE or BLOCKED), cancel future bookings
             if (newStatus != ParkingSpot.ParkingStatus.ACTIVE) {
-                List<com.smartparking.entity.Booking> futureBookings = bookingRepository.findFutureConfirmedBookings(id,
-                        java.time.LocalDateTime.now());
-
-                for (com.smartparking.entity.Booking booking : futureBookings) {
-                    // 1. Cancel Booking
-                    booking.setStatus(com.smartparking.entity.Booking.BookingStatus.CANCELLED);
-
-                    // 2. Refund Payment
-                    if (booking.getPayment() != null) {
-                        booking.getPayment().setStatus(com.smartparking.entity.Payment.PaymentStatus.REFUNDED);
-                    }
-                    bookingRepository.save(booking);
-
-                    // 3. Notify User
-                    String message = "Your booking for " + spot.getName() + " on " +
-                            booking.getStartTime().toLocalDate() +
-                            " has been cancelled because the parking spot is now unavailable. Use a different spot.";
-
-                    com.smartparking.entity.Notification notification = com.smartparking.entity.Notification.builder()
-                            .user(booking.getUser())
-                            .title("Booking Cancelled ⚠️")
-                            .message(message)
-                            .type("danger")
-                            .isRead(false)
-                            .createdAt(java.time.LocalDateTime.now())
-                            .build();
-
-                    notificationRepository.save(notification);
-                }
+                cancelFutureBookings(spot);
             }
 
         } catch (IllegalArgumentException e) {
@@ -193,6 +178,63 @@ public class ParkingSpotService {
         }
     }
 
+    // Cancels and refunds with bulk updates; users are notified later through the outbox.
+    // The selected rows are locked, so every one of them is still CONFIRMED when it is
+    // flipped and no booking is refunded, released or notified twice.
+    private void cancelFutureBookings(ParkingSpot spot) {
+        List<Object[]> rows = bookingRepository.findFutureConfirmedBookingRows(spot.getId(),
+                java.time.LocalDateTime.now());
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<Long> bookingIds = new ArrayList<>(rows.size());
+        List<NotificationOutboxService.Recipient> recipients = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            java.time.LocalDateTime startTime = (java.time.LocalDateTime) row[2];
+            bookingIds.add((Long) row[0]);
+            recipients.add(new NotificationOutboxService.Recipient((Long) row[1],
+                    "Your booking for " + spot.getName() + " on " + startTime.toLocalDate() +
+                            " has been cancelled because the parking spot is now unavailable. Use a different spot."));
+        }
+
+        int cancelled = 0;
+        for (int from = 0; from < bookingIds.size(); from += BULK_UPDATE_CHUNK) {
+            List<Long> chunk = bookingIds.subList(from, Math.min(from + BULK_UPDATE_CHUNK, bookingIds.size()));
+            cancelled += bookingRepository.cancelConfirmedByIds(chunk);
+            paymentRepository.refundByBookingIds(chunk);
+        }
+        if (cancelled != rows.size()) {
+            // Only possible if the row locks did not hold; roll back rather than count anything twice
+            throw new IllegalStateException("Cancelled " + cancelled + " of " + rows.size()
+                    + " locked bookings of spot " + spot.getId());
+        }
+        adminStatsService.onBookingsStatusChanged(com.smartparking.entity.Booking.BookingStatus.CONFIRMED,
+                com.smartparking.entity.Booking.BookingStatus.CANCELLED, cancelled);
+
+        // Revenue and occupancy come back out for the cancelled bookings only
+        BookingRollupService.Deltas rollupDeltas = new BookingRollupService.Deltas();
+        Long providerId = spot.getProvider() != null ? spot.getProvider().getId() : null;
+        for (Object[] row : rows) {
+            rollupDeltas.cancellation(spot.getId(), providerId, (java.time.LocalDateTime) row[2],
+                    (java.time.LocalDateTime) row[3], row[4] != null ? ((Number) row[4]).doubleValue() : 0.0);
+        }
+        rollupService.apply(rollupDeltas);
+
+        Long spotId = spot.getId();
+        TransactionUtil.afterCommit(() -> {
+            for (Object[] row : rows) {
+                Long bookingId = (Long) row[0];
+                capacityLedger.release(bookingId, spotId, (java.time.LocalDateTime) row[2],
+                        (java.time.LocalDateTime) row[3]);
+                availabilityEngine.remove(bookingId, spotId, (java.time.LocalDateTime) row[2],
+                        (java.time.LocalDateTime) row[3]);
+            }
+        });
+
+        notificationOutboxService.enqueue("Booking Cancelled ⚠️", "danger", recipients);
+    }
+
     @Transactional
     public ParkingSpotResponseDTO updateParkingSpot(Long id, UpdateParkingSpotDTO dto) {
         ParkingSpot spot = parkingSpotRepository.findById(id)
@@ -249,18 +291,54 @@ public class ParkingSpotService {
         }
 
         ParkingSpot updatedSpot = parkingSpotRepository.save(spot);
+        spatialIndex.sync(updatedSpot);
         return mapToDTO(updatedSpot);
     }
 
+    /**
+     * Every ACTIVE spot within the radius, nearest first.
+     */
     public List<ParkingSpotResponseDTO> getNearbyParkingSpots(double userLat, double userLng, double radiusKm) {
-        System.out.println("🔍 Finding nearby spots (DB Query). User Lat: " + userLat + ", Lng: " + userLng
-                + ", Radius: " + radiusKm);
-        List<ParkingSpot> nearbySpots = parkingSpotRepository.findNearbySpots(userLat, userLng, radiusKm);
+        return getNearbyParkingSpots(userLat, userLng, radiusKm, Pageable.unpaged());
+    }
 
-        return nearbySpots.stream()
-                .filter(spot -> spot.getStatus() == ParkingSpot.ParkingStatus.ACTIVE)
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    public List<ParkingSpotResponseDTO> getNearbyParkingSpots(double userLat, double userLng, double radiusKm,
+            int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_NEARBY_PAGE_SIZE);
+        return getNearbyParkingSpots(userLat, userLng, radiusKm, PageRequest.of(Math.max(page, 0), pageSize));
+    }
+
+    private List<ParkingSpotResponseDTO> getNearbyParkingSpots(double userLat, double userLng, double radiusKm,
+            Pageable pageable) {
+        List<SpotDistance> hits;
+        if (useSpatialIndex && spatialIndex.isReady()) {
+            hits = spatialIndex.findWithin(userLat, userLng, radiusKm);
+            if (pageable.isPaged()) {
+                hits = hits.stream()
+                        .skip(pageable.getOffset())
+                        .limit(pageable.getPageSize())
+                        .collect(Collectors.toList());
+            }
+        } else {
+            System.out.println("🔍 Finding nearby spots (DB Query). User Lat: " + userLat + ", Lng: " + userLng
+                    + ", Radius: " + radiusKm);
+            // Already ACTIVE-only and ordered by distance
+            hits = parkingSpotRepository.findNearbySpots(userLat, userLng, radiusKm, pageable);
+        }
+
+        // Load the matching spots in one go and keep them in distance order
+        Map<Long, ParkingSpot> spotsById = parkingSpotRepository
+                .findByIdIn(hits.stream().map(SpotDistance::getSpotId).collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(ParkingSpot::getId, Function.identity()));
+
+        List<ParkingSpotResponseDTO> result = new ArrayList<>();
+        for (SpotDistance hit : hits) {
+            ParkingSpot spot = spotsById.get(hit.getSpotId());
+            if (spot != null && spot.getStatus() == ParkingSpot.ParkingStatus.ACTIVE) {
+                result.add(mapToDTO(spot, hit.getDistanceKm()));
+            }
+        }
+        return result;
     }
 
     public List<ParkingSpotResponseDTO> getAllParkingSpots() {
@@ -269,6 +347,32 @@ public class ParkingSpotService {
                 .collect(Collectors.toList());
     }
 
+    public CursorPageDTO<ParkingSpotResponseDTO> getAllParkingSpotsPage(String cursor, Integer size) {
+        int pageSize = CursorUtil.clampPageSize(size);
+        List<ParkingSpot> spots = parkingSpotRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                ParkingSpot.ParkingStatus.ACTIVE, CursorUtil.decode(cursor), PageRequest.of(0, pageSize + 1));
+        return toCursorPage(spots, pageSize);
+    }
+
+    public CursorPageDTO<ParkingSpotResponseDTO> searchParkingSpotsPage(String state, String district,
+            String cursor, Integer size) {
+        int pageSize = CursorUtil.clampPageSize(size);
+        List<ParkingSpot> spots = parkingSpotRepository.findByStateAndDistrictAndStatusAndIdGreaterThanOrderByIdAsc(
+                state, district, ParkingSpot.ParkingStatus.ACTIVE, CursorUtil.decode(cursor),
+                PageRequest.of(0, pageSize + 1));
+        return toCursorPage(spots, pageSize);
+    }
+
+    // One extra row is fetched to learn whether another page follows
+    private CursorPageDTO<ParkingSpotResponseDTO> toCursorPage(List<ParkingSpot> spots, int pageSize) {
+        boolean hasMore = spots.size() > pageSize;
+        List<ParkingSpot> page = hasMore ? spots.subList(0, pageSize) : spots;
+        return CursorPageDTO.<ParkingSpotResponseDTO>builder()
+                .items(page.stream().map(this::mapToDTO).collect(Collectors.toList()))
+                .nextCursor(hasMore ? CursorUtil.encode(page.get(page.size() - 1).getId()) : null)
+                .build();
+    }
+
     public List<ParkingSpotResponseDTO> searchParkingSpots(String state, String district) {
         return parkingSpotRepository
                 .findByStateAndDistrictAndStatus(state, district, ParkingSpot.ParkingStatus.ACTIVE).stream()
@@ -276,19 +380,11 @@ public class ParkingSpotService {
                 .collect(Collectors.toList());
     }
 
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radius of Earth in kilometers
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                        * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+    private ParkingSpotResponseDTO mapToDTO(ParkingSpot parkingSpot) {
+        return mapToDTO(parkingSpot, null);
     }
 
-    private ParkingSpotResponseDTO mapToDTO(ParkingSpot parkingSpot) {
+    private ParkingSpotResponseDTO mapToDTO(ParkingSpot parkingSpot, Double distanceKm) {
         java.util.Set<String> vehicles = new java.util.HashSet<>();
         try {
             if (parkingSpot.getVehicleTypes() != null) {
@@ -298,26 +394,10 @@ public class ParkingSpotService {
             throw new RuntimeException("some error while adding the vehicles");
         }
 
-        java.util.List<String> images = new java.util.ArrayList<>();
-        try {
-            if (parkingSpot.getImageUrls() != null) {
-                // Sanitize image URLs
-                for (String url : parkingSpot.getImageUrls()) {
-                    if (url.startsWith("D:\\Infosys\\upload")) {
-                        String relative = url.substring("D:\\Infosys\\upload".length());
-                        images.add("/uploads" + relative.replace("\\", "/"));
-                    } else if (url.startsWith("/api/images")) {
-                        images.add(url);
-                    } else if (!url.startsWith("/uploads") && !url.startsWith("http")) {
-                        images.add("/uploads/" + url);
-                    } else {
-                        images.add(url);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("some error while adding the images");
-        }
+        // Stored URLs are canonical (see ImageUrlMigrationService), so the list is passed through read-only
+        List<String> images = parkingSpot.getImageUrls() != null
+                ? Collections.unmodifiableList(parkingSpot.getImageUrls())
+                : List.of();
 
         Long ownerId = null;
         String ownerName = "Unknown";
@@ -344,6 +424,7 @@ public class ParkingSpotService {
                 .googleMapsLink(parkingSpot.getGoogleMapsLink())
                 .latitude(parkingSpot.getLatitude())
                 .longitude(parkingSpot.getLongitude())
+                .distanceKm(distanceKm)
                 .totalCapacity(parkingSpot.getTotalCapacity())
                 .pricePerHour(parkingSpot.getPricePerHour())
                 .covered(parkingSpot.isCovered())
@@ -355,6 +436,12 @@ public class ParkingSpotService {
                 .monthlyPlan(parkingSpot.isMonthlyPlan())
                 .weekendPricing(parkingSpot.getWeekendPricing())
                 .imageUrls(images)
+                .thumbnailUrls(images.stream()
+                        .map(url -> ImageStorageService.derivativeUrl(url, ImageStorageService.Derivative.THUMBNAIL))
+                        .toList())
+                .mediumImageUrls(images.stream()
+                        .map(url -> ImageStorageService.derivativeUrl(url, ImageStorageService.Derivative.MEDIUM))
+                        .toList())
                 .status(parkingSpot.getStatus() != null ? parkingSpot.getStatus() : ParkingSpot.ParkingStatus.BLOCKED)
                 .ownerId(ownerId)
                 .ownerName(ownerName)
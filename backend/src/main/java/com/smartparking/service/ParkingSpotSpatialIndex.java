@@ -0,0 +1,202 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.SpotDistance;
+import com.smartparking.entity.ParkingSpot;
+import com.smartparking.repository.ParkingSpotRepository;
+import com.smartparking.util.GeoUtil;
+import com.smartparking.util.TransactionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory uniform lat/lng grid holding the coordinates of every ACTIVE parking
+ * spot. Radius queries only visit the cells overlapping the search circle's
+ * bounding box instead of evaluating the distance formula for every row.
+ */
+@Service
+public class ParkingSpotSpatialIndex {
+
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final double cellSizeDegrees;
+    private final int lngCells;
+
+    private final Map<Long, Map<Long, double[]>> cells = new HashMap<>();
+    private final Map<Long, Long> cellBySpot = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+
+    public ParkingSpotSpatialIndex(ParkingSpotRepository parkingSpotRepository,
+            @Value("${parking.nearby.index.cell-size-degrees:0.05}") double cellSizeDegrees) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.lngCells = (int) Math.ceil(360 / cellSizeDegrees);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Object[]> rows = parkingSpotRepository.findCoordinatesByStatus(ParkingSpot.ParkingStatus.ACTIVE);
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            cellBySpot.clear();
+            for (Object[] row : rows) {
+                if (row[1] != null && row[2] != null) {
+                    put((Long) row[0], (Double) row[1], (Double) row[2]);
+                }
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("🗺️ Spatial index loaded with " + cellBySpot.size() + " active spots");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cellBySpot.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the index in line with the spot's current state once the surrounding
+     * transaction commits (or immediately when there is none).
+     */
+    public void sync(ParkingSpot spot) {
+        Long id = spot.getId();
+        boolean indexable = spot.getStatus() == ParkingSpot.ParkingStatus.ACTIVE
+                && spot.getLatitude() != null && spot.getLongitude() != null;
+        Double lat = spot.getLatitude();
+        Double lng = spot.getLongitude();
+
+        Runnable update = () -> {
+            if (indexable) {
+                put(id, lat, lng);
+            } else {
+                remove(id);
+            }
+        };
+
+        TransactionUtil.afterCommit(update);
+    }
+
+    public void put(Long spotId, double lat, double lng) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(spotId);
+            long key = cellKey(latCell(lat), lngCell(lng));
+            cells.computeIfAbsent(key, k -> new HashMap<>()).put(spotId, new double[] { lat, lng });
+            cellBySpot.put(spotId, key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long spotId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(spotId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the spots within {@code radiusKm} of the origin, nearest first.
+     */
+    public List<SpotDistance> findWithin(double lat, double lng, double radiusKm) {
+        double latDelta = GeoUtil.latitudeDelta(radiusKm);
+        double lngDelta = GeoUtil.longitudeDelta(lat, radiusKm);
+
+        int minLatCell = latCell(Math.max(-90, lat - latDelta));
+        int maxLatCell = latCell(Math.min(90, lat + latDelta));
+
+        int firstLngCell;
+        int lngSpan;
+        if (lngDelta >= 180) {
+            firstLngCell = 0;
+            lngSpan = lngCells;
+        } else {
+            firstLngCell = lngCell(lng - lngDelta);
+            lngSpan = Math.min(lngCells,
+                    (int) Math.floor((lng + lngDelta + 180) / cellSizeDegrees)
+                            - (int) Math.floor((lng - lngDelta + 180) / cellSizeDegrees) + 1);
+        }
+
+        List<SpotDistance> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            long candidateCells = (long) (maxLatCell - minLatCell + 1) * lngSpan;
+            if (candidateCells > cells.size()) {
+                // Huge radius: walking the occupied cells is cheaper than the empty ones
+                for (Map<Long, double[]> cell : cells.values()) {
+                    collect(cell, lat, lng, radiusKm, result);
+                }
+            } else {
+                for (int latIdx = minLatCell; latIdx <= maxLatCell; latIdx++) {
+                    for (int i = 0; i < lngSpan; i++) {
+                        Map<Long, double[]> cell = cells.get(cellKey(latIdx, (firstLngCell + i) % lngCells));
+                        if (cell != null) {
+                            collect(cell, lat, lng, radiusKm, result);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.sort(Comparator.comparing(SpotDistance::getDistanceKm));
+        return result;
+    }
+
+    private void collect(Map<Long, double[]> cell, double lat, double lng, double radiusKm,
+            List<SpotDistance> result) {
+        for (Map.Entry<Long, double[]> entry : cell.entrySet()) {
+            double[] coords = entry.getValue();
+            double distance = GeoUtil.distanceKm(lat, lng, coords[0], coords[1]);
+            if (distance <= radiusKm) {
+                result.add(new SpotDistance(entry.getKey(), distance));
+            }
+        }
+    }
+
+    private void removeInternal(Long spotId) {
+        Long key = cellBySpot.remove(spotId);
+        if (key != null) {
+            Map<Long, double[]> cell = cells.get(key);
+            cell.remove(spotId);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private int latCell(double lat) {
+        return (int) Math.floor((lat + 90) / cellSizeDegrees);
+    }
+
+    private int lngCell(double lng) {
+        int idx = (int) Math.floor((lng + 180) / cellSizeDegrees) % lngCells;
+        return idx < 0 ? idx + lngCells : idx;
+    }
+
+    private static long cellKey(int latIdx, int lngIdx) {
+        return ((long) latIdx << 32) | (lngIdx & 0xffffffffL);
+    }
+}
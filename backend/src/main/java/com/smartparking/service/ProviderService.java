@@ -7,11 +7,13 @@ import com.smartparking.repository.ParkingProviderApplicationRepository;
 import com.smartparking.repository.ParkingSpotRepository;
 import com.smartparking.repository.ProviderRepository;
 import com.smartparking.repository.UserRepository;
+import com.smartparking.security.CurrentUser;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +29,8 @@ public class ProviderService {
         private final ParkingSpotRepository parkingSpotRepository;
         private final ImageStorageService imageStorageService;
         private final ParkingProviderApplicationRepository parkingProviderApplicationRepository;
+        private final TransactionTemplate transactionTemplate;
+        private final AdminStatsService adminStatsService;
 
         // public void addProviderWithSpot(ParkingProviderApplicationDTO dto) {
         // String email = ((UserDetails)
@@ -112,40 +116,30 @@ public class ProviderService {
         // //
         // // parkingSpotRepository.save(spot);
         // // }
+
+        // Images are written before the transaction starts, so no connection is held during the upload
+        @Transactional(propagation = Propagation.NOT_SUPPORTED)
         public ProviderApplication saveApplication(
                         ParkingProviderApplicationDto dto) {
 
-                String email = ((UserDetails) SecurityContextHolder.getContext()
-                                .getAuthentication()
-                                .getPrincipal())
-                                .getUsername();
-
-                User user = userRepository.findByEmail(email)
-                                .orElseThrow(() -> new RuntimeException("User not found"));
+                User user = CurrentUser.get();
 
-                List<String> imageUrls = new ArrayList<>();
+                // Required images, then the optional one
+                List<MultipartFile> images = new ArrayList<>();
+                images.add(dto.getParkingAreaImage());
+                images.add(dto.getEntryGateImage());
+                if (dto.getSurroundingAreaImage() != null) {
+                        images.add(dto.getSurroundingAreaImage());
+                }
 
-                // Save required images
-                imageUrls.add(
-                                imageStorageService.saveFile(
-                                                dto.getParkingAreaImage(),
-                                                user.getId(),
-                                                ImageDirectoryType.APPLICATION));
+                // Stored before the rows; a rollback leaves them unreferenced, which is harmless
+                List<String> imageUrls = imageStorageService.stage(images).promote(ImageDirectoryType.APPLICATION);
 
-                imageUrls.add(
-                                imageStorageService.saveFile(
-                                                dto.getEntryGateImage(),
-                                                user.getId(),
-                                                ImageDirectoryType.APPLICATION));
+                return transactionTemplate.execute(status -> storeApplication(dto, user, imageUrls));
+        }
 
-                // Optional image
-                if (dto.getSurroundingAreaImage() != null) {
-                        imageUrls.add(
-                                        imageStorageService.saveFile(
-                                                        dto.getSurroundingAreaImage(),
-                                                        user.getId(),
-                                                        ImageDirectoryType.APPLICATION));
-                }
+        private ProviderApplication storeApplication(ParkingProviderApplicationDto dto, User user,
+                        List<String> imageUrls) {
 
                 // Extract coordinates from Google Maps Link if available
                 if (dto.getGoogleMapsLink() != null && !dto.getGoogleMapsLink().isEmpty()) {
@@ -163,6 +157,8 @@ public class ProviderService {
                 Optional<ProviderApplication> existingApp = parkingProviderApplicationRepository.findByUser(user);
 
                 ProviderApplication application;
+                ProviderApplication.ApplicationStatus previousStatus = existingApp
+                                .map(ProviderApplication::getStatus).orElse(null);
 
                 if (existingApp.isPresent()) {
                         // Update existing application
@@ -272,7 +268,9 @@ public class ProviderService {
                                         .build();
                 }
 
-                return parkingProviderApplicationRepository.save(application);
+                application = parkingProviderApplicationRepository.save(application);
+                adminStatsService.onApplicationStatusChanged(previousStatus, application.getStatus());
+                return application;
         }
 
         public java.util.Map<String, String> getProviderStatus(String email) {
@@ -0,0 +1,247 @@
+package com.smartparking.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Occupancy timelines of every spot together with the ids of the bookings
+ * counted in them, shared by {@link BookingCapacityLedger} and
+ * {@link BookingAvailabilityEngine}.
+ * <p>
+ * A booking is added or removed at most once however often the change is
+ * reported, so a change that reaches both the database snapshot of a rebuild and
+ * the rebuild's journal is still counted once. {@link #rebuild} loads a fresh
+ * copy off to the side while changes keep applying to the current one and are
+ * journaled, then replays the journal onto the fresh copy and swaps it in.
+ * Changes take a shared lock and only the swap takes it exclusively, so spots
+ * still never contend with each other.
+ */
+final class SpotOccupancy {
+
+    /**
+     * A unit taken before its booking commits. Such units are invisible to the
+     * database snapshot, so a rebuild carries over the ones still outstanding. A
+     * unit stays outstanding until it has both committed and been named with
+     * {@link #bookedAs}.
+     */
+    static final class Pending {
+
+        private final Long spotId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        // Read by the swap without the unit's monitor
+        private volatile Long bookingId;
+        private boolean committed;
+
+        private Pending(Long spotId, LocalDateTime start, LocalDateTime end) {
+            this.spotId = spotId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private record Change(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end, boolean add) {
+    }
+
+    private static final class State {
+
+        private final Map<Long, BookingAvailabilityEngine.OccupancyTimeline> timelines = new ConcurrentHashMap<>();
+        // Booking id -> its interval, for every booking the timelines count
+        private final Map<Long, Change> counted = new ConcurrentHashMap<>();
+
+        private BookingAvailabilityEngine.OccupancyTimeline timeline(Long spotId) {
+            return timelines.computeIfAbsent(spotId, id -> new BookingAvailabilityEngine.OccupancyTimeline());
+        }
+
+        private void apply(Change change) {
+            if (change.add()) {
+                if (counted.putIfAbsent(change.bookingId(), change) == null) {
+                    timeline(change.spotId()).apply(change.start(), change.end(), 1);
+                }
+            } else if (counted.remove(change.bookingId()) != null) {
+                timeline(change.spotId()).apply(change.start(), change.end(), -1);
+            }
+        }
+    }
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Set<Pending> pending = ConcurrentHashMap.newKeySet();
+    private volatile State state = new State();
+    // Changes made while a rebuild runs; only replaced under the exclusive lock
+    private Queue<Change> journal;
+
+    /**
+     * The spot's timeline for reading, or null when nothing was ever booked there.
+     */
+    BookingAvailabilityEngine.OccupancyTimeline timeline(Long spotId) {
+        return state.timelines.get(spotId);
+    }
+
+    /**
+     * Counts a committed booking, unless it is counted already.
+     */
+    void add(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        record(new Change(bookingId, spotId, start, end, true));
+    }
+
+    /**
+     * Stops counting a cancelled booking, unless it is not counted.
+     */
+    void remove(Long bookingId, Long spotId, LocalDateTime start, LocalDateTime end) {
+        record(new Change(bookingId, spotId, start, end, false));
+    }
+
+    /**
+     * Takes a unit of the window for a booking that has not committed yet, or
+     * returns null when some moment of it already holds {@code capacity}.
+     */
+    Pending take(Long spotId, LocalDateTime start, LocalDateTime end, int capacity) {
+        swapLock.readLock().lock();
+        try {
+            if (!state.timeline(spotId).tryAcquire(start, end, capacity)) {
+                return null;
+            }
+            Pending unit = new Pending(spotId, start, end);
+            pending.add(unit);
+            return unit;
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Names the booking a pending unit was taken for, so a rebuild that already
+     * sees the booking does not count it again.
+     */
+    void bookedAs(Pending unit, Long bookingId) {
+        synchronized (unit) {
+            unit.bookingId = bookingId;
+            if (unit.committed) {
+                settle(unit);
+            }
+        }
+    }
+
+    /**
+     * The booking committed; its unit now counts like any added booking.
+     */
+    void commit(Pending unit) {
+        synchronized (unit) {
+            unit.committed = true;
+            if (unit.bookingId != null) {
+                settle(unit);
+            }
+        }
+    }
+
+    /**
+     * The booking did not commit; gives its unit back.
+     */
+    void rollback(Pending unit) {
+        swapLock.readLock().lock();
+        try {
+            if (pending.remove(unit)) {
+                state.timeline(unit.spotId).apply(unit.start, unit.end, -1);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces everything with the bookings returned by {@code load}, rows of
+     * (bookingId, spotId, startTime, endTime), plus whatever changed while they
+     * were being read. Returns the number of rows loaded.
+     */
+    synchronized int rebuild(Supplier<List<Object[]>> load) {
+        Queue<Change> changes = new ConcurrentLinkedQueue<>();
+        swapLock.writeLock().lock();
+        try {
+            journal = changes;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        State fresh = new State();
+        List<Object[]> rows;
+        try {
+            rows = load.get();
+            for (Object[] row : rows) {
+                fresh.apply(new Change((Long) row[0], (Long) row[1], (LocalDateTime) row[2], (LocalDateTime) row[3],
+                        true));
+            }
+        } catch (RuntimeException e) {
+            stopJournal();
+            throw e;
+        }
+
+        swapLock.writeLock().lock();
+        try {
+            changes.forEach(fresh::apply);
+            for (Pending unit : pending) {
+                // A booking that committed before the snapshot is already in it
+                if (unit.bookingId == null || !fresh.counted.containsKey(unit.bookingId)) {
+                    fresh.timeline(unit.spotId).apply(unit.start, unit.end, 1);
+                }
+            }
+            state = fresh;
+            journal = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        return rows.size();
+    }
+
+    /**
+     * Drops change points and counted bookings that lie entirely before the cutoff.
+     */
+    void prune(LocalDateTime cutoff) {
+        State current = state;
+        current.timelines.values().forEach(timeline -> timeline.prune(cutoff));
+        current.counted.values().removeIf(change -> !change.end().isAfter(cutoff));
+    }
+
+    // Turns a committed, named unit into a counted booking; the timeline already holds it
+    private void settle(Pending unit) {
+        Change change = new Change(unit.bookingId, unit.spotId, unit.start, unit.end, true);
+        swapLock.readLock().lock();
+        try {
+            pending.remove(unit);
+            if (journal != null) {
+                journal.add(change);
+            }
+            state.counted.putIfAbsent(unit.bookingId, change);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void record(Change change) {
+        swapLock.readLock().lock();
+        try {
+            if (journal != null) {
+                journal.add(change);
+            }
+            state.apply(change);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void stopJournal() {
+        swapLock.writeLock().lock();
+        try {
+            journal = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+}
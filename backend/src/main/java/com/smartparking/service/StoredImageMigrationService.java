@@ -0,0 +1,122 @@
+package com.smartparking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves images saved on local disk before the blob store existed into the store,
+ * so their old URLs keep working:
+ * <ul>
+ * <li>files saved through /api/parking/upload, out of their old folder (see
+ * {@link ImageStorageService#adoptStored}), for /api/images/ URLs;</li>
+ * <li>when the store is not the local one, every file under the local uploads
+ * folder (see {@link ImageStorageService#adoptUpload}), for /uploads/ URLs such
+ * as {@code /uploads/parking_spot/<owner>/images/<uuid>.jpg}. The local store
+ * already serves these from where they are.</li>
+ * </ul>
+ * Each file leaves its folder once it is stored, so after the first run the
+ * folders are empty and this finds nothing.
+ */
+@Service
+public class StoredImageMigrationService {
+
+    private final ImageStorageService imageStorageService;
+    private final Path legacyPath;
+    // Null when the store is the local one and already serves this folder
+    private final Path uploadsPath;
+    private final boolean runOnStartup;
+
+    public StoredImageMigrationService(ImageStorageService imageStorageService,
+            @Value("${image.stored-migration.legacy-path:uploaded-images}") String legacyPath,
+            @Value("${image.storage.type:local}") String storageType,
+            @Value("${image.stored-migration.uploads-path:${image.storage.local.base-path:uploads}}") String uploadsPath,
+            @Value("${image.stored-migration.on-startup:true}") boolean runOnStartup) {
+        this.imageStorageService = imageStorageService;
+        this.legacyPath = Paths.get(legacyPath);
+        this.uploadsPath = "local".equals(storageType) ? null : Paths.get(uploadsPath).toAbsolutePath().normalize();
+        this.runOnStartup = runOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (runOnStartup) {
+            migrate();
+        }
+    }
+
+    /**
+     * Moves every file of the legacy folders into the store and returns how many
+     * were moved. A file that fails stays where it is and is retried next time.
+     */
+    public int migrate() {
+        return migrateStored() + migrateUploads();
+    }
+
+    private int migrateStored() {
+        if (!Files.isDirectory(legacyPath)) {
+            return 0;
+        }
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(legacyPath)) {
+            files = listing.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not list " + legacyPath + ": " + e.getMessage());
+            return 0;
+        }
+
+        int moved = 0;
+        for (Path file : files) {
+            try {
+                if (imageStorageService.adoptStored(file)) {
+                    moved++;
+                } else {
+                    System.out.println("⚠️ Left " + file + " in place: name not servable or already stored");
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("⚠️ Could not move " + file + " into image storage: " + e.getMessage());
+            }
+        }
+        if (moved > 0) {
+            System.out.println("🖼️ Moved " + moved + " images from " + legacyPath + " into image storage");
+        }
+        return moved;
+    }
+
+    private int migrateUploads() {
+        if (uploadsPath == null || !Files.isDirectory(uploadsPath)) {
+            return 0;
+        }
+        List<Path> files;
+        try (Stream<Path> tree = Files.walk(uploadsPath)) {
+            files = tree.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not list " + uploadsPath + ": " + e.getMessage());
+            return 0;
+        }
+
+        int moved = 0;
+        for (Path file : files) {
+            try {
+                if (imageStorageService.adoptUpload(uploadsPath, file)) {
+                    moved++;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("⚠️ Could not move " + file + " into image storage: " + e.getMessage());
+            }
+        }
+        if (moved > 0) {
+            System.out.println("🖼️ Moved " + moved + " images from " + uploadsPath + " into image storage");
+        }
+        return moved;
+    }
+}
@@ -3,6 +3,7 @@ package com.smartparking.service;
 import com.smartparking.dto.UpdateProfileDTO;
 import com.smartparking.entity.User;
 import com.smartparking.repository.UserRepository;
+import com.smartparking.security.CustomUserDetailsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Service;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final CustomUserDetailsService userDetailsService;
 
     public User updateProfile(String email, UpdateProfileDTO dto) {
         User user = userRepository.findByEmail(email)
@@ -31,7 +33,9 @@ public class UserService {
         if (dto.getPincode() != null)
             user.setPincode(dto.getPincode());
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userDetailsService.evict(email);
+        return saved;
     }
 
     public com.smartparking.dto.UserProfileDTO getProfile(String email) {
@@ -0,0 +1,61 @@
+package com.smartparking.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Where uploaded image bytes are kept, chosen with {@code image.storage.type}.
+ * <p>
+ * Keys are relative, '/'-separated paths such as
+ * {@code parking_spot/ab/<sha256>.jpg}. The keys ImageStorageService generates
+ * carry a two-hex-digit shard folder, so no directory or prefix grows without
+ * bound. Stored objects are never overwritten with different content.
+ */
+public interface BlobStore {
+
+    boolean exists(String key);
+
+    /**
+     * Stores the file's bytes under {@code key}. The source may be moved rather
+     * than copied, so the caller must not use it afterwards.
+     */
+    void putFile(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Opens the object for reading; throws {@link java.nio.file.NoSuchFileException}
+     * when there is none.
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * The local file holding the object, so it can be sent without copying it
+     * through the JVM; empty for remote stores.
+     */
+    Optional<Path> localFile(String key);
+
+    /**
+     * A URL the client can read the object from directly for {@code ttl}; empty
+     * when the application has to serve the bytes itself.
+     */
+    Optional<URI> directReadUrl(String key, Duration ttl);
+
+    /**
+     * Whether the key is a plain relative path: no empty, "." or ".." segments,
+     * no segment starting with '.', and no backslashes.
+     */
+    static boolean isValidKey(String key) {
+        if (key == null || key.isEmpty() || key.length() > 512 || key.indexOf('\\') >= 0) {
+            return false;
+        }
+        for (String segment : key.split("/", -1)) {
+            if (segment.isEmpty() || segment.startsWith(".")) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,95 @@
+package com.smartparking.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps objects as files under {@code image.storage.local.base-path}, one file
+ * per key at the key's relative path. Writes land under a temporary dot-name in
+ * the target folder and are renamed into place, so a reader never sees a
+ * partial file. Put the base path on shared storage to run several instances.
+ */
+@Component
+@ConditionalOnProperty(name = "image.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    private final Path basePath;
+
+    public LocalBlobStore(@Value("${image.storage.local.base-path:uploads}") String basePath) {
+        this.basePath = Paths.get(basePath).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.basePath);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize storage", e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        Path file = resolve(key);
+        return file != null && Files.isRegularFile(file);
+    }
+
+    @Override
+    public void putFile(String key, Path source, String contentType) throws IOException {
+        Path target = resolve(key);
+        if (target == null) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Different filesystem: copy beside the target first so the final rename stays atomic
+            Path partial = target.resolveSibling("." + UUID.randomUUID() + ".part");
+            try {
+                Files.copy(source, partial);
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(source);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path file = resolve(key);
+        if (file == null) {
+            throw new NoSuchFileException(key);
+        }
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        return Optional.ofNullable(resolve(key));
+    }
+
+    @Override
+    public Optional<URI> directReadUrl(String key, Duration ttl) {
+        return Optional.empty();
+    }
+
+    private Path resolve(String key) {
+        if (!BlobStore.isValidKey(key)) {
+            return null;
+        }
+        Path file = basePath.resolve(key).normalize();
+        return file.startsWith(basePath) ? file : null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.smartparking.util;
+
+public class GeoUtil {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    /**
+     * Great-circle distance between two points in kilometers (haversine formula).
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Degrees of latitude spanned by the given distance.
+     */
+    public static double latitudeDelta(double radiusKm) {
+        return Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+    }
+
+    /**
+     * Degrees of longitude spanned by the given distance at the given latitude.
+     * Returns 360 when the circle reaches a pole, i.e. every longitude qualifies.
+     */
+    public static double longitudeDelta(double lat, double radiusKm) {
+        double maxLat = Math.abs(lat) + latitudeDelta(radiusKm);
+        if (maxLat >= 90) {
+            return 360;
+        }
+        double ratio = Math.sin(radiusKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(lat));
+        if (ratio >= 1) {
+            return 360;
+        }
+        return Math.toDegrees(Math.asin(ratio));
+    }
+}
@@ -0,0 +1,112 @@
+package com.smartparking.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Downscaled JPEG renditions of uploaded images, using only the JDK's ImageIO.
+ */
+public class ImageResizer {
+
+    // Larger images are not decoded at all, so a small crafted file cannot tie up a worker
+    public static final long MAX_PIXELS = 100_000_000L;
+
+    private static final float JPEG_QUALITY = 0.8f;
+
+    /**
+     * Decodes the image with its longer edge between {@code maxEdge} and twice
+     * that, skipping whole source rows and columns while decoding so large photos
+     * never sit in memory at full size; the final resize then scales down by less
+     * than half and keeps its quality. Returns null when ImageIO has no reader for the format
+     * or the image is too large to decode safely.
+     */
+    public static BufferedImage read(Path file, int maxEdge) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            return read(input, maxEdge);
+        }
+    }
+
+    /**
+     * Same as {@link #read(Path, int)} for an image streamed from remote storage.
+     */
+    public static BufferedImage read(InputStream in, int maxEdge) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            return read(input, maxEdge);
+        }
+    }
+
+    private static BufferedImage read(ImageInputStream input, int maxEdge) throws IOException {
+        if (input == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            if ((long) width * height > MAX_PIXELS) {
+                return null;
+            }
+            ImageReadParam param = reader.getDefaultReadParam();
+            // Rounded down, so the decoded edge never falls below maxEdge
+            int step = Math.max(1, Math.max(width, height) / maxEdge);
+            param.setSourceSubsampling(step, step, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Writes {@code source} as a JPEG whose longer edge is at most {@code maxEdge}.
+     * Smaller images keep their size; transparency is flattened onto white.
+     */
+    public static void writeJpeg(BufferedImage source, int maxEdge, Path target) throws IOException {
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
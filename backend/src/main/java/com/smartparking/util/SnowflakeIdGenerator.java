@@ -0,0 +1,59 @@
+package com.smartparking.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Unique, time-ordered 64-bit ids: 41 bits of milliseconds since 2026-01-01 UTC,
+ * 10 bits of worker id and a 12-bit sequence within the millisecond.
+ * <p>
+ * The last (millisecond, sequence) pair is kept in one atomic long, so issuing
+ * an id is a compare-and-set with no locking or allocation. When a millisecond
+ * runs out of sequence numbers, or the clock steps backwards, ids continue from
+ * the last one issued rather than waiting, so they never repeat and never go
+ * down. Each instance must use its own {@code ids.worker-id}.
+ */
+@Component
+public class SnowflakeIdGenerator {
+
+    static final long EPOCH_MILLIS = 1767225600000L;
+    private static final int WORKER_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+
+    private final long workerField;
+    private final LongSupplier clock;
+    // (millis since epoch << SEQUENCE_BITS) | sequence of the last id issued
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(@Value("${ids.worker-id:0}") long workerId) {
+        this(workerId, System::currentTimeMillis);
+    }
+
+    public SnowflakeIdGenerator(long workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("worker id must be between 0 and " + MAX_WORKER_ID);
+        }
+        this.workerField = workerId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = last.get();
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            // A sequence overflow carries into the millisecond bits
+            long next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (last.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (millis << (WORKER_BITS + SEQUENCE_BITS)) | workerField | sequence;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.smartparking.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Small bounded cache where every entry carries its own expiry time.
+ * <p>
+ * Backed by a {@link ConcurrentHashMap}, so lookups take no lock and readers on
+ * different threads never wait for each other; a hit only stamps the entry with
+ * its last use. Once more than {@code maxEntries} are stored, a put drops
+ * everything expired and then the least recently used entries, down to 15/16 of
+ * the bound so the sort behind it runs once per batch of puts rather than on
+ * every one. Expired entries are never returned.
+ */
+public class TtlCache<K, V> {
+
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+
+    public TtlCache(int maxEntries) {
+        this(maxEntries, System::currentTimeMillis);
+    }
+
+    public TtlCache(int maxEntries, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis <= clock.getAsLong()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.lastUsed = System.nanoTime();
+        return entry.value;
+    }
+
+    /**
+     * Stores the value until {@code expiresAtMillis} (epoch millis, same clock as the cache).
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        long now = clock.getAsLong();
+        if (expiresAtMillis <= now) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+        if (entries.size() > maxEntries) {
+            evict(now);
+        }
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Drops everything expired, then the least recently used entries until below the bound
+    private void evict(long now) {
+        synchronized (evictionLock) {
+            if (entries.size() <= maxEntries) {
+                return;
+            }
+            entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+            int target = maxEntries - maxEntries / 16;
+            int excess = entries.size() - target;
+            if (excess <= 0) {
+                return;
+            }
+            // Stamps are copied first; readers keep updating them while this sorts
+            List<Candidate<K, V>> byLastUse = new ArrayList<>(entries.size());
+            for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+                byLastUse.add(new Candidate<>(e.getKey(), e.getValue(), e.getValue().lastUsed));
+            }
+            byLastUse.sort(Comparator.comparingLong(Candidate::lastUsed));
+            for (int i = 0; i < excess && i < byLastUse.size(); i++) {
+                entries.remove(byLastUse.get(i).key(), byLastUse.get(i).entry());
+            }
+        }
+    }
+
+    private record Candidate<K, V>(K key, Entry<V> entry, long lastUsed) {
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long expiresAtMillis;
+        // Written on every hit without a lock; eviction only needs an approximate order
+        private volatile long lastUsed = System.nanoTime();
+
+        private Entry(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.smartparking.repository;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.dto.SpotDistance;
+import com.smartparking.entity.ParkingSpot;
+import com.smartparking.service.ParkingSpotSpatialIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ParkingSpotRepositoryTest {
+
+    // Keeps the slice away from the application's CommandLineRunner beans
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    static class Config {
+    }
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    private ParkingSpot spot(String name, double lat, double lng, ParkingSpot.ParkingStatus status) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setName(name);
+        spot.setLatitude(lat);
+        spot.setLongitude(lng);
+        spot.setTotalCapacity(10);
+        spot.setPricePerHour(20.0);
+        spot.setStatus(status);
+        return parkingSpotRepository.save(spot);
+    }
+
+    @Test
+    void testNearbySpotsAreActiveOnlyAndOrderedByDistance() {
+        ParkingSpot near = spot("near", 12.9716, 77.5946, ParkingSpot.ParkingStatus.ACTIVE);
+        ParkingSpot mid = spot("mid", 13.0100, 77.5946, ParkingSpot.ParkingStatus.ACTIVE);
+        spot("blocked", 12.9720, 77.5950, ParkingSpot.ParkingStatus.BLOCKED);
+        spot("far", 13.5000, 77.5946, ParkingSpot.ParkingStatus.ACTIVE);
+
+        List<SpotDistance> hits = parkingSpotRepository.findNearbySpots(12.9716, 77.5946, 10,
+                PageRequest.of(0, 10));
+
+        assertEquals(List.of(near.getId(), mid.getId()),
+                hits.stream().map(SpotDistance::getSpotId).collect(Collectors.toList()));
+        assertEquals(0.0, hits.get(0).getDistanceKm(), 1e-6);
+        assertEquals(4.27, hits.get(1).getDistanceKm(), 0.01);
+    }
+
+    // The in-memory index must answer exactly what the query it replaces would
+    @Test
+    void testNearbyQueryMatchesSpatialIndex() {
+        ParkingSpotSpatialIndex index = new ParkingSpotSpatialIndex(null, 0.05);
+        Random random = new Random(42);
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            ParkingSpot spot = new ParkingSpot();
+            spot.setName("spot" + i);
+            spot.setLatitude(12.0 + random.nextDouble());
+            spot.setLongitude(77.0 + random.nextDouble());
+            spot.setTotalCapacity(10);
+            spot.setPricePerHour(20.0);
+            spot.setStatus(ParkingSpot.ParkingStatus.ACTIVE);
+            spots.add(spot);
+        }
+        for (ParkingSpot spot : parkingSpotRepository.saveAll(spots)) {
+            index.put(spot.getId(), spot.getLatitude(), spot.getLongitude());
+        }
+
+        for (int q = 0; q < 20; q++) {
+            double userLat = 12.0 + random.nextDouble();
+            double userLng = 77.0 + random.nextDouble();
+            double radius = 1 + random.nextDouble() * 20;
+
+            Set<Long> expected = nonBoundaryIds(parkingSpotRepository.findNearbySpots(userLat, userLng, radius,
+                    PageRequest.of(0, spots.size())), radius);
+            List<SpotDistance> hits = index.findWithin(userLat, userLng, radius);
+
+            assertEquals(expected, nonBoundaryIds(hits, radius));
+            for (int i = 1; i < hits.size(); i++) {
+                assertTrue(hits.get(i - 1).getDistanceKm() <= hits.get(i).getDistanceKm());
+            }
+        }
+    }
+
+    // Spots sitting on the circle may round to either side in SQL and in Java
+    private static Set<Long> nonBoundaryIds(List<SpotDistance> hits, double radius) {
+        return hits.stream()
+                .filter(hit -> Math.abs(hit.getDistanceKm() - radius) >= 1e-6)
+                .map(SpotDistance::getSpotId)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    @Test
+    void testNearbySpotsPaging() {
+        for (int i = 0; i < 5; i++) {
+            spot("spot" + i, 12.97 + i * 0.001, 77.59, ParkingSpot.ParkingStatus.ACTIVE);
+        }
+
+        List<SpotDistance> first = parkingSpotRepository.findNearbySpots(12.97, 77.59, 5, PageRequest.of(0, 2));
+        List<SpotDistance> last = parkingSpotRepository.findNearbySpots(12.97, 77.59, 5, PageRequest.of(2, 2));
+
+        assertEquals(2, first.size());
+        assertEquals(1, last.size());
+        assertTrue(first.get(1).getDistanceKm() <= last.get(0).getDistanceKm());
+    }
+
+    @Test
+    void testKeysetPagingSkipsInactiveSpots() {
+        ParkingSpot a = spot("a", 12.97, 77.59, ParkingSpot.ParkingStatus.ACTIVE);
+        spot("b", 12.97, 77.59, ParkingSpot.ParkingStatus.MAINTENANCE);
+        ParkingSpot c = spot("c", 12.97, 77.59, ParkingSpot.ParkingStatus.ACTIVE);
+        ParkingSpot d = spot("d", 12.97, 77.59, ParkingSpot.ParkingStatus.ACTIVE);
+
+        List<ParkingSpot> first = parkingSpotRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                ParkingSpot.ParkingStatus.ACTIVE, 0L, PageRequest.of(0, 2));
+        List<ParkingSpot> second = parkingSpotRepository.findByStatusAndIdGreaterThanOrderByIdAsc(
+                ParkingSpot.ParkingStatus.ACTIVE, first.get(1).getId(), PageRequest.of(0, 2));
+
+        assertEquals(List.of(a.getId(), c.getId()), first.stream().map(ParkingSpot::getId).collect(Collectors.toList()));
+        assertEquals(List.of(d.getId()), second.stream().map(ParkingSpot::getId).collect(Collectors.toList()));
+    }
+}
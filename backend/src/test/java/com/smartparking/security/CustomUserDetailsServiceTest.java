@@ -0,0 +1,50 @@
+package com.smartparking.security;
+
+import com.smartparking.entity.Role;
+import com.smartparking.entity.User;
+import com.smartparking.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomUserDetailsServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailsService service = new CustomUserDetailsService(userRepository, 100, 300);
+
+    @Test
+    void testRepeatLookupsAreServedFromCache() {
+        when(userRepository.findByEmail("a@test.com"))
+                .thenReturn(Optional.of(User.builder().id(1L).email("a@test.com").role(Role.USER).build()));
+
+        service.loadUserByUsername("a@test.com");
+        User user = (User) service.loadUserByUsername("a@test.com");
+
+        assertEquals(1L, user.getId());
+        verify(userRepository, times(1)).findByEmail("a@test.com");
+    }
+
+    @Test
+    void testEvictReloadsChangedUser() {
+        when(userRepository.findByEmail("b@test.com"))
+                .thenReturn(Optional.of(User.builder().id(2L).email("b@test.com").role(Role.USER).build()))
+                .thenReturn(Optional.of(User.builder().id(2L).email("b@test.com").role(Role.PROVIDER).build()));
+
+        assertEquals(Role.USER, ((User) service.loadUserByUsername("b@test.com")).getRole());
+        service.evict("b@test.com");
+        assertEquals(Role.PROVIDER, ((User) service.loadUserByUsername("b@test.com")).getRole());
+    }
+
+    @Test
+    void testCallersCannotModifyCachedUser() {
+        when(userRepository.findByEmail("c@test.com"))
+                .thenReturn(Optional.of(User.builder().id(3L).email("c@test.com").role(Role.USER).build()));
+
+        ((User) service.loadUserByUsername("c@test.com")).setRole(Role.ADMIN);
+
+        assertEquals(Role.USER, ((User) service.loadUserByUsername("c@test.com")).getRole());
+    }
+}
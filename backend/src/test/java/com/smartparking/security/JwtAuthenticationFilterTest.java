@@ -0,0 +1,75 @@
+package com.smartparking.security;
+
+import com.smartparking.entity.Role;
+import com.smartparking.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "dGVzdC1zZWNyZXQta2V5LWZvci1zbWFydC1wYXJraW5nLXVuaXQtdGVzdHMtb25seQ==";
+
+    private final User user = User.builder().email("user@test.com").role(Role.USER).build();
+    private final JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, 100, 10_000);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(provider, username -> user);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication authenticate(MockHttpServletRequest request) throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static MockHttpServletRequest get(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    @Test
+    void testStreamTokenInQueryOpensTheStream() throws Exception {
+        MockHttpServletRequest request = get(JwtAuthenticationFilter.NOTIFICATION_STREAM_PATH);
+        request.setParameter(JwtAuthenticationFilter.STREAM_TOKEN_PARAM, provider.generateStreamToken(user));
+
+        Authentication authentication = authenticate(request);
+        assertNotNull(authentication);
+        assertSame(user, authentication.getPrincipal());
+    }
+
+    @Test
+    void testStreamTokenIsRejectedEverywhereElse() throws Exception {
+        String streamToken = provider.generateStreamToken(user);
+
+        MockHttpServletRequest otherPath = get("/api/notifications");
+        otherPath.setParameter(JwtAuthenticationFilter.STREAM_TOKEN_PARAM, streamToken);
+        assertNull(authenticate(otherPath));
+
+        MockHttpServletRequest inHeader = get("/api/notifications");
+        inHeader.addHeader("Authorization", "Bearer " + streamToken);
+        assertNull(authenticate(inHeader));
+    }
+
+    @Test
+    void testLoginTokenIsOnlyAcceptedInTheHeader() throws Exception {
+        String loginToken = provider.generateToken(user);
+
+        MockHttpServletRequest inQuery = get(JwtAuthenticationFilter.NOTIFICATION_STREAM_PATH);
+        inQuery.setParameter(JwtAuthenticationFilter.STREAM_TOKEN_PARAM, loginToken);
+        assertNull(authenticate(inQuery));
+
+        MockHttpServletRequest inHeader = get(JwtAuthenticationFilter.NOTIFICATION_STREAM_PATH);
+        inHeader.addHeader("Authorization", "Bearer " + loginToken);
+        assertNotNull(authenticate(inHeader));
+    }
+}
@@ -0,0 +1,63 @@
+package com.smartparking.security;
+
+import com.smartparking.entity.Role;
+import com.smartparking.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "dGVzdC1zZWNyZXQta2V5LWZvci1zbWFydC1wYXJraW5nLXVuaXQtdGVzdHMtb25seQ==";
+
+    private final User user = User.builder().email("user@test.com").role(Role.USER).build();
+
+    @Test
+    void testRepeatTokenIsServedFromCache() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, 100, 10_000);
+        String token = provider.generateToken(user);
+
+        Claims first = provider.extractAllClaims(token);
+        assertSame(first, provider.extractAllClaims(token));
+        assertEquals("user@test.com", provider.extractUsername(token));
+        assertTrue(provider.isTokenValid(first, user));
+        assertTrue(provider.isTokenValid(token, user));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, 100, 10_000);
+        String token = provider.generateToken(user);
+        provider.extractAllClaims(token);
+
+        String tampered = token.substring(0, token.length() - 2)
+                + (token.endsWith("AA") ? "BB" : "AA");
+        assertThrows(SignatureException.class, () -> provider.extractAllClaims(tampered));
+    }
+
+    @Test
+    void testExpiredTokenIsNotServedFromCache() throws InterruptedException {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 1_000, 100, 10_000);
+        String token = provider.generateToken(user);
+        provider.extractAllClaims(token);
+
+        Thread.sleep(1_100);
+        assertThrows(ExpiredJwtException.class, () -> provider.extractAllClaims(token));
+    }
+
+    @Test
+    void testStreamTokenIsScopedAndShortLived() {
+        JwtTokenProvider provider = new JwtTokenProvider(SECRET, 60_000, 100, 10_000);
+
+        Claims stream = provider.extractAllClaims(provider.generateStreamToken(user));
+        Claims login = provider.extractAllClaims(provider.generateToken(user));
+
+        assertTrue(provider.isStreamToken(stream));
+        assertFalse(provider.isStreamToken(login));
+        assertTrue(provider.isTokenValid(stream, user));
+        assertTrue(stream.getExpiration().getTime() - stream.getIssuedAt().getTime() <= 10_000);
+    }
+}
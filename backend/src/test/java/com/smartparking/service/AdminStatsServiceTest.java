@@ -0,0 +1,96 @@
+package com.smartparking.service;
+
+import com.smartparking.entity.Booking;
+import com.smartparking.entity.ProviderApplication;
+import com.smartparking.entity.Role;
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.repository.ParkingProviderApplicationRepository;
+import com.smartparking.repository.ParkingSpotRepository;
+import com.smartparking.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AdminStatsServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ParkingSpotRepository parkingSpotRepository = mock(ParkingSpotRepository.class);
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final ParkingProviderApplicationRepository applicationRepository =
+            mock(ParkingProviderApplicationRepository.class);
+    private final AdminStatsService stats = new AdminStatsService(userRepository, parkingSpotRepository,
+            bookingRepository, applicationRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.countByRole(Role.USER)).thenReturn(10L);
+        when(userRepository.countByRole(Role.PROVIDER)).thenReturn(2L);
+        when(parkingSpotRepository.count()).thenReturn(5L);
+        when(bookingRepository.countByStatus(Booking.BookingStatus.CONFIRMED)).thenReturn(7L);
+        when(bookingRepository.countByStatus(Booking.BookingStatus.CANCELLED)).thenReturn(1L);
+        when(bookingRepository.calculateTotalRevenue()).thenReturn(400.5);
+        when(applicationRepository.countByStatus(ProviderApplication.ApplicationStatus.PENDING)).thenReturn(0L);
+    }
+
+    @Test
+    void testEventsMoveCountersWithoutQueries() {
+        stats.reconcile();
+        clearInvocations(userRepository, parkingSpotRepository, bookingRepository, applicationRepository);
+
+        stats.onUserRegistered(Role.USER);
+        stats.onRoleChanged(Role.USER, Role.PROVIDER);
+        stats.onSpotCreated();
+        stats.onBookingCreated(99.5);
+        stats.onBookingsStatusChanged(Booking.BookingStatus.CONFIRMED, Booking.BookingStatus.CANCELLED, 3);
+
+        Map<String, Object> snapshot = stats.getStats();
+        assertEquals(10L, snapshot.get("totalUsers"));
+        assertEquals(3L, snapshot.get("totalProviders"));
+        assertEquals(6L, snapshot.get("totalSpots"));
+        assertEquals(5L, snapshot.get("activeBookings"));
+        assertEquals(4L, snapshot.get("cancelledBookings"));
+        assertEquals(500.0, snapshot.get("totalRevenue"));
+        assertEquals(List.of(), snapshot.get("systemAlerts"));
+        verifyNoInteractions(userRepository, parkingSpotRepository, bookingRepository, applicationRepository);
+    }
+
+    @Test
+    void testApplicationReviewMovesThePendingCount() {
+        stats.reconcile();
+        clearInvocations(applicationRepository);
+
+        stats.onApplicationStatusChanged(null, ProviderApplication.ApplicationStatus.PENDING);
+        stats.onApplicationStatusChanged(null, ProviderApplication.ApplicationStatus.PENDING);
+        stats.onApplicationStatusChanged(ProviderApplication.ApplicationStatus.REJECTED,
+                ProviderApplication.ApplicationStatus.PENDING);
+        // Editing an application that is still pending
+        stats.onApplicationStatusChanged(ProviderApplication.ApplicationStatus.PENDING,
+                ProviderApplication.ApplicationStatus.PENDING);
+        assertEquals(List.of("3 pending provider applications"), stats.getStats().get("systemAlerts"));
+
+        stats.onApplicationStatusChanged(ProviderApplication.ApplicationStatus.PENDING,
+                ProviderApplication.ApplicationStatus.APPROVED);
+        stats.onApplicationStatusChanged(ProviderApplication.ApplicationStatus.PENDING,
+                ProviderApplication.ApplicationStatus.REJECTED);
+        assertEquals(List.of("1 pending provider applications"), stats.getStats().get("systemAlerts"));
+        verifyNoInteractions(applicationRepository);
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() {
+        stats.reconcile();
+        stats.onSpotCreated();
+        stats.onSpotCreated();
+        when(applicationRepository.countByStatus(ProviderApplication.ApplicationStatus.PENDING)).thenReturn(2L);
+
+        stats.reconcile();
+
+        assertEquals(5L, stats.getStats().get("totalSpots"));
+        assertEquals(List.of("2 pending provider applications"), stats.getStats().get("systemAlerts"));
+    }
+}
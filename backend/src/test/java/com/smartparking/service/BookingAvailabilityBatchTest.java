@@ -0,0 +1,134 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.dto.AvailabilityRequestDTO;
+import com.smartparking.entity.*;
+import com.smartparking.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class BookingAvailabilityBatchTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import({ BookingService.class, BookingCapacityLedger.class, BookingAvailabilityEngine.class,
+            AdminStatsService.class, BookingRollupService.class, BookingLifecycleService.class,
+            BookingIdempotencyCache.class, SnowflakeIdGenerator.class })
+    static class Config {
+    }
+
+    private static final LocalDateTime DAY = LocalDateTime.now().plusDays(2).truncatedTo(ChronoUnit.DAYS);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingAvailabilityEngine availabilityEngine;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private ParkingSpot twoSlots;
+    private ParkingSpot oneSlot;
+    private ParkingSpot empty;
+
+    @BeforeEach
+    void setUp() {
+        User owner = entityManager.persist(User.builder().name("Owner").email("owner@test.com")
+                .password("secret").role(Role.PROVIDER).build());
+        Provider provider = entityManager.persist(Provider.builder().user(owner).fullName("Owner")
+                .verificationStatus(Provider.VerificationStatus.APPROVED).build());
+        twoSlots = spot(provider, "Two slots", 2);
+        oneSlot = spot(provider, "One slot", 1);
+        empty = spot(provider, "Empty", 5);
+
+        // twoSlots is full from 11:00 to 12:00 only; oneSlot from 10:00 to 11:00
+        booking(owner, twoSlots, 10, 12);
+        booking(owner, twoSlots, 11, 13);
+        booking(owner, oneSlot, 10, 11);
+        entityManager.flush();
+        entityManager.clear();
+        availabilityEngine.rebuild();
+    }
+
+    private ParkingSpot spot(Provider provider, String name, int capacity) {
+        return entityManager.persist(ParkingSpot.builder().provider(provider).name(name)
+                .totalCapacity(capacity).pricePerHour(20.0).status(ParkingSpot.ParkingStatus.ACTIVE).build());
+    }
+
+    private void booking(User user, ParkingSpot spot, int fromHour, int toHour) {
+        entityManager.persist(Booking.builder().user(user).parkingSpot(spot)
+                .startTime(DAY.withHour(fromHour)).endTime(DAY.withHour(toHour)).totalPrice(20.0)
+                .status(Booking.BookingStatus.CONFIRMED).build());
+    }
+
+    private static AvailabilityRequestDTO window(Long spotId, int fromHour, int toHour) {
+        return new AvailabilityRequestDTO(spotId, DAY.withHour(fromHour), DAY.withHour(toHour));
+    }
+
+    @Test
+    void testMixedSpotsMatchSingleChecksAndUnknownSpotsAreLeftOut() {
+        Map<Long, Integer> available = bookingService.getAvailableSlotsBatch(List.of(
+                window(twoSlots.getId(), 9, 11),
+                window(oneSlot.getId(), 10, 11),
+                window(empty.getId(), 8, 20),
+                window(Long.MAX_VALUE, 9, 10)));
+
+        assertEquals(Map.of(twoSlots.getId(), 1, oneSlot.getId(), 0, empty.getId(), 5), available);
+        assertEquals(bookingService.getAvailableSlots(twoSlots.getId(), DAY.withHour(9), DAY.withHour(11)),
+                available.get(twoSlots.getId()));
+        assertEquals(bookingService.getAvailableSlots(oneSlot.getId(), DAY.withHour(10), DAY.withHour(11)),
+                available.get(oneSlot.getId()));
+    }
+
+    // The result is keyed by spot, so a spot asked about in several windows reports the tightest one
+    @Test
+    void testSameSpotInSeveralWindowsReportsItsLowestAvailability() {
+        Map<Long, Integer> available = bookingService.getAvailableSlotsBatch(List.of(
+                window(twoSlots.getId(), 8, 9),
+                window(twoSlots.getId(), 11, 12),
+                window(twoSlots.getId(), 13, 14)));
+
+        assertEquals(Map.of(twoSlots.getId(), 0), available);
+        assertEquals(Map.of(twoSlots.getId(), 2), bookingService.getAvailableSlotsBatch(List.of(
+                window(twoSlots.getId(), 8, 9),
+                window(twoSlots.getId(), 13, 14))));
+    }
+
+    @Test
+    void testBatchSizeIsLimited() {
+        List<AvailabilityRequestDTO> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            requests.add(window(empty.getId(), 8, 9));
+        }
+        assertEquals(Map.of(empty.getId(), 5), bookingService.getAvailableSlotsBatch(requests));
+
+        requests.add(window(empty.getId(), 8, 9));
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> bookingService.getAvailableSlotsBatch(requests));
+        assertTrue(error.getMessage().contains("200"));
+    }
+
+    @Test
+    void testEmptyAndIncompleteRequests() {
+        assertEquals(Map.of(), bookingService.getAvailableSlotsBatch(List.of()));
+        assertEquals(Map.of(), bookingService.getAvailableSlotsBatch(null));
+        assertThrows(RuntimeException.class, () -> bookingService.getAvailableSlotsBatch(List.of(
+                new AvailabilityRequestDTO(empty.getId(), DAY.withHour(8), null))));
+    }
+}
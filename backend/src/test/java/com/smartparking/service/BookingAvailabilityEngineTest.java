@@ -0,0 +1,152 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.AvailabilitySlotDTO;
+import com.smartparking.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookingAvailabilityEngineTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    private static int bruteForceMax(List<LocalDateTime[]> bookings, LocalDateTime start, LocalDateTime end) {
+        int peak = 0;
+        for (LocalDateTime t = start; t.isBefore(end); t = t.plusMinutes(1)) {
+            LocalDateTime at = t;
+            peak = Math.max(peak, (int) bookings.stream()
+                    .filter(b -> !b[0].isAfter(at) && b[1].isAfter(at)).count());
+        }
+        return peak;
+    }
+
+    @Test
+    void testPeakOccupancyIsNotTheOverlapCount() {
+        BookingAvailabilityEngine engine = new BookingAvailabilityEngine(null);
+        // Three bookings overlap 09:00-13:00 but never more than two at once
+        engine.add(1L, 1L, DAY.withHour(9), DAY.withHour(11));
+        engine.add(2L, 1L, DAY.withHour(10), DAY.withHour(12));
+        engine.add(3L, 1L, DAY.withHour(11), DAY.withHour(13));
+
+        assertEquals(2, engine.maxOccupancy(1L, DAY.withHour(9), DAY.withHour(13)));
+        assertEquals(1, engine.maxOccupancy(1L, DAY.withHour(12), DAY.withHour(14)));
+        assertEquals(0, engine.maxOccupancy(1L, DAY.withHour(13), DAY.withHour(14)));
+    }
+
+    @Test
+    void testMatchesBruteForceWithAddsAndRemoves() {
+        BookingAvailabilityEngine engine = new BookingAvailabilityEngine(null);
+        Random random = new Random(7);
+        List<LocalDateTime[]> live = new ArrayList<>();
+
+        List<Long> ids = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            if (!live.isEmpty() && random.nextInt(3) == 0) {
+                int index = random.nextInt(live.size());
+                LocalDateTime[] removed = live.remove(index);
+                engine.remove(ids.remove(index), 2L, removed[0], removed[1]);
+            } else {
+                LocalDateTime from = DAY.plusMinutes(random.nextInt(20 * 60));
+                LocalDateTime to = from.plusMinutes(15 + random.nextInt(240));
+                live.add(new LocalDateTime[] { from, to });
+                ids.add((long) i);
+                engine.add((long) i, 2L, from, to);
+            }
+        }
+
+        for (int q = 0; q < 100; q++) {
+            LocalDateTime from = DAY.plusMinutes(random.nextInt(22 * 60));
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(180));
+            assertEquals(bruteForceMax(live, from, to), engine.maxOccupancy(2L, from, to));
+        }
+    }
+
+    @Test
+    void testFreeCapacityTimeline() {
+        BookingAvailabilityEngine engine = new BookingAvailabilityEngine(null);
+        engine.add(1L, 3L, DAY.withHour(10), DAY.withHour(11).withMinute(30));
+
+        List<AvailabilitySlotDTO> timeline = engine.freeCapacityTimeline(3L, 2, DAY.withHour(9), DAY.withHour(12),
+                Duration.ofHours(1));
+
+        assertEquals(3, timeline.size());
+        assertEquals(2, timeline.get(0).getAvailableSlots());
+        assertEquals(1, timeline.get(1).getAvailableSlots());
+        assertEquals(1, timeline.get(2).getAvailableSlots());
+        assertEquals(DAY.withHour(12), timeline.get(2).getEndTime());
+    }
+
+    // A window shown as free must be admitted by createBooking, and a full one rejected
+    @Test
+    void testAvailabilityAndAdmissionGiveTheSameAnswer() {
+        BookingAvailabilityEngine engine = new BookingAvailabilityEngine(null);
+        BookingCapacityLedger ledger = new BookingCapacityLedger(null);
+        Random random = new Random(11);
+        int capacity = 3;
+
+        for (int i = 0; i < 200; i++) {
+            // Arbitrary minutes, so windows start and end inside any fixed grid
+            LocalDateTime from = DAY.plusMinutes(random.nextInt(20 * 60));
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(120));
+            BookingCapacityLedger.Reservation reservation = ledger.tryAcquire(4L, capacity, from, to);
+            if (reservation != null) {
+                reservation.bookedAs((long) i);
+                engine.add((long) i, 4L, from, to);
+            }
+        }
+
+        for (int q = 0; q < 500; q++) {
+            LocalDateTime from = DAY.plusMinutes(random.nextInt(22 * 60));
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(120));
+            int available = engine.freeCapacityTimeline(4L, capacity, from, to, Duration.between(from, to))
+                    .get(0).getAvailableSlots();
+
+            BookingCapacityLedger.Reservation probe = ledger.tryAcquire(4L, capacity, from, to);
+            boolean admitted = probe != null;
+            if (admitted) {
+                probe.bookedAs(-1L - q);
+                ledger.release(-1L - q, 4L, from, to);
+            }
+            assertEquals(capacity - engine.maxOccupancy(4L, from, to), available);
+            assertEquals(available > 0, admitted, "window " + from + " - " + to);
+        }
+    }
+
+    @Test
+    void testRebuildCountsChangesReportedWhileItReadsOnce() {
+        BookingRepository repository = mock(BookingRepository.class);
+        BookingAvailabilityEngine engine = new BookingAvailabilityEngine(repository);
+        LocalDateTime from = DAY.withHour(10);
+        LocalDateTime to = DAY.withHour(12);
+        when(repository.findLiveConfirmedIntervals(any())).thenAnswer(invocation -> {
+            // Booking 2 committed before the query but is reported only now
+            engine.add(2L, 5L, from, to);
+            // Booking 3 commits and booking 1 is cancelled after the query has read
+            engine.add(3L, 5L, from, to);
+            engine.remove(1L, 5L, from, to);
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[] { 1L, 5L, from, to });
+            rows.add(new Object[] { 2L, 5L, from, to });
+            return rows;
+        });
+
+        engine.rebuild();
+
+        assertTrue(engine.isReady());
+        assertEquals(2, engine.maxOccupancy(5L, from, to));
+        // Reports that arrive late for bookings the query already saw change nothing
+        engine.add(2L, 5L, from, to);
+        engine.remove(1L, 5L, from, to);
+        assertEquals(2, engine.maxOccupancy(5L, from, to));
+    }
+}
@@ -0,0 +1,202 @@
+package com.smartparking.service;
+
+import com.smartparking.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookingCapacityLedgerTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    // Admits outside a transaction, where a reservation counts as committed at once
+    private static boolean admit(BookingCapacityLedger ledger, long bookingId, long spotId, int capacity,
+            LocalDateTime from, LocalDateTime to) {
+        BookingCapacityLedger.Reservation reservation = ledger.tryAcquire(spotId, capacity, from, to);
+        if (reservation == null) {
+            return false;
+        }
+        reservation.bookedAs(bookingId);
+        return true;
+    }
+
+    private static List<Object[]> rows(long spotId, LocalDateTime from, LocalDateTime to, long... bookingIds) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long bookingId : bookingIds) {
+            rows.add(new Object[] { bookingId, spotId, from, to });
+        }
+        return rows;
+    }
+
+    @Test
+    void testLastSlotIsNeverOversold() throws InterruptedException {
+        BookingCapacityLedger ledger = new BookingCapacityLedger(null);
+        int capacity = 7;
+        int threads = 64;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        for (int i = 0; i < threads * 4; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (ledger.tryAcquire(1L, capacity, DAY.withHour(10), DAY.withHour(12)) != null) {
+                    admitted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(capacity, admitted.get());
+        assertEquals(capacity, ledger.peakOccupancy(1L, DAY.withHour(10), DAY.withHour(12)));
+    }
+
+    @Test
+    void testOverlappingStormKeepsEveryMomentWithinCapacity() throws Exception {
+        BookingCapacityLedger ledger = new BookingCapacityLedger(null);
+        int capacity = 5;
+        List<LocalDateTime[]> accepted = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong ids = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        List<Future<Object>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            tasks.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                LocalDateTime from = DAY.plusMinutes(random.nextInt(0, 20 * 60));
+                LocalDateTime to = from.plusMinutes(random.nextInt(15, 4 * 60));
+                long bookingId = ids.incrementAndGet();
+                if (admit(ledger, bookingId, 2L, capacity, from, to)) {
+                    LocalDateTime[] booking = { from, to };
+                    accepted.add(booking);
+                    // Some bookings are cancelled while others are still being admitted
+                    if (random.nextInt(4) == 0) {
+                        assertTrue(accepted.remove(booking));
+                        ledger.release(bookingId, 2L, from, to);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        for (Future<Object> task : tasks) {
+            task.get();
+        }
+
+        // Sweep every minute of the day: concurrent accepted bookings never exceed capacity
+        for (int minute = 0; minute < 26 * 60; minute++) {
+            LocalDateTime t = DAY.plusMinutes(minute);
+            long concurrent;
+            synchronized (accepted) {
+                concurrent = accepted.stream().filter(b -> !b[0].isAfter(t) && b[1].isAfter(t)).count();
+            }
+            assertTrue(concurrent <= capacity, "oversold at " + t + ": " + concurrent);
+            assertEquals(concurrent, ledger.peakOccupancy(2L, t, t.plusMinutes(1)), "ledger drifted at " + t);
+        }
+    }
+
+    @Test
+    void testBackToBackBookingsDoNotCollide() {
+        BookingCapacityLedger ledger = new BookingCapacityLedger(null);
+
+        assertTrue(admit(ledger, 1L, 3L, 1, DAY.withHour(10), DAY.withHour(11)));
+        assertTrue(admit(ledger, 2L, 3L, 1, DAY.withHour(11), DAY.withHour(12)));
+        assertFalse(admit(ledger, 3L, 3L, 1, DAY.withHour(10).withMinute(30), DAY.withHour(11).withMinute(30)));
+
+        ledger.release(1L, 3L, DAY.withHour(10), DAY.withHour(11));
+        assertTrue(admit(ledger, 4L, 3L, 1, DAY.withHour(10), DAY.withHour(10).withMinute(45)));
+    }
+
+    @Test
+    void testShortBookingsAdmitOnExactIntervals() {
+        BookingCapacityLedger ledger = new BookingCapacityLedger(null);
+
+        assertTrue(admit(ledger, 1L, 4L, 1, DAY.withHour(10), DAY.withHour(10).withMinute(10)));
+        assertTrue(admit(ledger, 2L, 4L, 1, DAY.withHour(10).withMinute(10), DAY.withHour(10).withMinute(20)));
+        assertFalse(admit(ledger, 3L, 4L, 1, DAY.withHour(10).withMinute(5), DAY.withHour(10).withMinute(15)));
+        // A rejected request leaves nothing behind
+        assertEquals(1, ledger.peakOccupancy(4L, DAY.withHour(10), DAY.withHour(11)));
+        assertEquals(0, ledger.peakOccupancy(4L, DAY.withHour(10).withMinute(20), DAY.withHour(11)));
+    }
+
+    // Before the ledger is ready bookings are admitted on the database count and still reserved
+    @Test
+    void testBookingCommittedWhileTheRebuildReadsIsCounted() {
+        BookingRepository repository = mock(BookingRepository.class);
+        BookingCapacityLedger ledger = new BookingCapacityLedger(repository);
+        LocalDateTime from = DAY.withHour(10);
+        LocalDateTime to = DAY.withHour(12);
+        when(repository.findLiveConfirmedIntervals(any())).thenAnswer(invocation -> {
+            List<Object[]> snapshot = rows(5L, from, to, 1L);
+            // Booking 2 commits after the query has read, before the ledger is ready
+            assertFalse(ledger.isReady());
+            ledger.reserve(5L, from, to).bookedAs(2L);
+            return snapshot;
+        });
+
+        ledger.rebuild();
+
+        assertTrue(ledger.isReady());
+        assertEquals(2, ledger.peakOccupancy(5L, from, to));
+        assertNull(ledger.tryAcquire(5L, 2, from, to));
+    }
+
+    @Test
+    void testReservationOutstandingAcrossTheRebuildCountsOnce() {
+        BookingRepository repository = mock(BookingRepository.class);
+        BookingCapacityLedger ledger = new BookingCapacityLedger(repository);
+        LocalDateTime from = DAY.withHour(10);
+        LocalDateTime to = DAY.withHour(12);
+
+        // Booking 3 is saved and committed in the database, but its transaction has not reported back yet
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> committing;
+        List<TransactionSynchronization> rollingBack;
+        try {
+            ledger.tryAcquire(6L, 10, from, to).bookedAs(3L);
+            committing = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.initSynchronization();
+            // This one has not even been saved when the rebuild swaps
+            ledger.tryAcquire(6L, 10, from, to);
+            rollingBack = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        when(repository.findLiveConfirmedIntervals(any())).thenReturn(rows(6L, from, to, 1L, 3L));
+
+        ledger.rebuild();
+        assertEquals(3, ledger.peakOccupancy(6L, from, to));
+
+        committing.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        rollingBack.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertEquals(2, ledger.peakOccupancy(6L, from, to));
+        ledger.release(3L, 6L, from, to);
+        assertEquals(1, ledger.peakOccupancy(6L, from, to));
+    }
+}
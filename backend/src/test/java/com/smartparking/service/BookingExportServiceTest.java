@@ -0,0 +1,140 @@
+package com.smartparking.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.entity.*;
+import com.smartparking.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The export runs in its own read-only transaction, like it does on the async
+ * response thread, so the test itself runs without one.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export_test;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "booking.export.chunk-size=2" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingExportServiceTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import(BookingExportService.class)
+    static class Config {
+    }
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 10, 9, 0);
+
+    @Autowired
+    private BookingExportService exportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long ownerId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(User.builder().name("Owner").email("owner@test.com")
+                .password("secret").role(Role.PROVIDER).build());
+        ownerId = owner.getId();
+        ParkingSpot spot = saveSpot(owner, "Mall, \"North\" Gate");
+        User other = userRepository.save(User.builder().name("Other").email("other@test.com")
+                .password("secret").role(Role.PROVIDER).build());
+        ParkingSpot otherSpot = saveSpot(other, "Elsewhere");
+
+        User customer = userRepository.save(User.builder().name("=HYPERLINK(\"x\")").email("user@test.com")
+                .password("secret").phoneNumber("+91 98765 43210").role(Role.USER).build());
+        for (int i = 0; i < 5; i++) {
+            Booking booking = Booking.builder().user(customer).parkingSpot(spot).startTime(START.plusDays(i))
+                    .endTime(START.plusDays(i).plusHours(2)).totalPrice(40.0)
+                    .status(Booking.BookingStatus.CONFIRMED).build();
+            if (i == 0) {
+                booking.setPayment(Payment.builder().amount(40.0).paymentMethod(Payment.PaymentMethod.UPI)
+                        .status(Payment.PaymentStatus.SUCCESS).booking(booking).build());
+            }
+            bookingRepository.save(booking);
+        }
+        bookingRepository.save(Booking.builder().user(customer).parkingSpot(otherSpot).startTime(START)
+                .endTime(START.plusHours(1)).totalPrice(20.0).status(Booking.BookingStatus.CONFIRMED).build());
+    }
+
+    private ParkingSpot saveSpot(User owner, String name) {
+        Provider provider = providerRepository.save(Provider.builder().user(owner).fullName(owner.getName())
+                .verificationStatus(Provider.VerificationStatus.APPROVED).build());
+        return parkingSpotRepository.save(ParkingSpot.builder().provider(provider).name(name)
+                .totalCapacity(10).pricePerHour(20.0).status(ParkingSpot.ParkingStatus.ACTIVE).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("payments", "bookings", "parking_spot_vehicles", "parking_spot_images",
+                "parking_spots", "providers", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void testCsvExportsOnlyTheOwnersBookingsEscaped() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(5, exportService.export(ownerId, BookingExportService.Format.CSV, out));
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(6, lines.size());
+        assertTrue(lines.get(0).startsWith("id,parkingSpotId,parkingSpotName,startTime"));
+        String first = lines.get(1);
+        assertTrue(first.contains(",\"Mall, \"\"North\"\" Gate\",2026-03-10 09:00:00,2026-03-10 11:00:00,40.0,"
+                + "CONFIRMED,UPI,"), first);
+        assertTrue(first.endsWith(",\"'=HYPERLINK(\"\"x\"\")\",user@test.com,+91 98765 43210"), first);
+        assertTrue(lines.get(5).contains(",N/A,"));
+    }
+
+    @Test
+    void testNdjsonWritesOneBookingPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(ownerId, BookingExportService.Format.NDJSON, out);
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(5, lines.size());
+        long previousId = 0;
+        for (String line : lines) {
+            JsonNode node = mapper.readTree(line);
+            assertTrue(node.get("id").asLong() > previousId);
+            previousId = node.get("id").asLong();
+            assertEquals("user@test.com", node.get("userEmail").asText());
+        }
+        assertEquals("2026-03-10 09:00:00", mapper.readTree(lines.get(0)).get("startTime").asText());
+    }
+}
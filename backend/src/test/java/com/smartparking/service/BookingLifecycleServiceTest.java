@@ -0,0 +1,141 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.entity.*;
+import com.smartparking.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction; the service commits each chunk on its own.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lifecycle_test;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "booking.lifecycle.chunk-size=2",
+        "booking.lifecycle.horizon-minutes=120" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingLifecycleServiceTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import({ BookingLifecycleService.class, AdminStatsService.class })
+    static class Config {
+    }
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 10, 12, 0);
+
+    @Autowired
+    private BookingLifecycleService lifecycleService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private ParkingSpot spot;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder().name("Owner").email("owner@test.com")
+                .password("secret").role(Role.PROVIDER).build());
+        Provider provider = providerRepository.save(Provider.builder().user(user).fullName("Owner")
+                .verificationStatus(Provider.VerificationStatus.APPROVED).build());
+        spot = parkingSpotRepository.save(ParkingSpot.builder().provider(provider).name("Mall Parking")
+                .totalCapacity(10).pricePerHour(20.0).status(ParkingSpot.ParkingStatus.ACTIVE).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("bookings", "parking_spots", "providers", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    private Long saveBooking(LocalDateTime end, Booking.BookingStatus status) {
+        return bookingRepository.save(Booking.builder().user(user).parkingSpot(spot).startTime(end.minusHours(1))
+                .endTime(end).totalPrice(20.0).status(status).build()).getId();
+    }
+
+    private Booking.BookingStatus statusOf(Long id) {
+        return bookingRepository.findById(id).orElseThrow().getStatus();
+    }
+
+    @Test
+    void testReloadCompletesOverdueAndQueuesTheHorizon() {
+        List<Long> overdue = List.of(saveBooking(NOW.minusDays(3), Booking.BookingStatus.CONFIRMED),
+                saveBooking(NOW.minusHours(5), Booking.BookingStatus.CONFIRMED),
+                saveBooking(NOW, Booking.BookingStatus.CONFIRMED));
+        Long cancelled = saveBooking(NOW.minusHours(1), Booking.BookingStatus.CANCELLED);
+        Long soon = saveBooking(NOW.plusMinutes(30), Booking.BookingStatus.CONFIRMED);
+        Long later = saveBooking(NOW.plusHours(5), Booking.BookingStatus.CONFIRMED);
+
+        assertEquals(3, lifecycleService.reload(NOW));
+
+        overdue.forEach(id -> assertEquals(Booking.BookingStatus.COMPLETED, statusOf(id)));
+        assertEquals(Booking.BookingStatus.CANCELLED, statusOf(cancelled));
+        assertEquals(1, lifecycleService.queuedCount());
+
+        assertEquals(0, lifecycleService.completeDue(NOW.plusMinutes(29)));
+        assertEquals(1, lifecycleService.completeDue(NOW.plusMinutes(30)));
+        assertEquals(Booking.BookingStatus.COMPLETED, statusOf(soon));
+        assertEquals(Booking.BookingStatus.CONFIRMED, statusOf(later));
+        assertEquals(0, lifecycleService.queuedCount());
+
+        // Outside the loaded window until the next reload pulls it in
+        assertEquals(0, lifecycleService.completeDue(NOW.plusHours(6)));
+        assertEquals(1, lifecycleService.reload(NOW.plusHours(6)));
+        assertEquals(Booking.BookingStatus.COMPLETED, statusOf(later));
+    }
+
+    @Test
+    void testScheduledBookingsCompleteInChunksAndSkipCancelled() {
+        lifecycleService.reload(NOW);
+        List<Long> ids = List.of(saveBooking(NOW.plusMinutes(10), Booking.BookingStatus.CONFIRMED),
+                saveBooking(NOW.plusMinutes(10), Booking.BookingStatus.CONFIRMED),
+                saveBooking(NOW.plusMinutes(20), Booking.BookingStatus.CONFIRMED),
+                saveBooking(NOW.plusMinutes(40), Booking.BookingStatus.CONFIRMED));
+        Long beyond = saveBooking(NOW.plusHours(3), Booking.BookingStatus.CONFIRMED);
+        for (Long id : ids) {
+            lifecycleService.scheduleAfterCommit(id, endOf(id));
+        }
+        lifecycleService.scheduleAfterCommit(beyond, NOW.plusHours(3));
+        assertEquals(4, lifecycleService.queuedCount());
+
+        // Cancelled after being queued: the guarded update leaves it alone
+        jdbcTemplate.update("UPDATE bookings SET status = 'CANCELLED' WHERE id = ?", ids.get(3));
+
+        assertEquals(3, lifecycleService.completeDue(NOW.plusHours(1)));
+        assertEquals(Booking.BookingStatus.COMPLETED, statusOf(ids.get(2)));
+        assertEquals(Booking.BookingStatus.CANCELLED, statusOf(ids.get(3)));
+        assertEquals(Booking.BookingStatus.CONFIRMED, statusOf(beyond));
+    }
+
+    private LocalDateTime endOf(Long id) {
+        return bookingRepository.findById(id).orElseThrow().getEndTime();
+    }
+}
@@ -0,0 +1,149 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.dto.RollupDTO;
+import com.smartparking.entity.*;
+import com.smartparking.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rollups written incrementally must match a rebuild from the bookings table.
+ * Runs without a test transaction so the rebuild's own transaction sees the data.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rollup_test;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "booking.rollups.chunk-size=2" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingRollupServiceTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import(BookingRollupService.class)
+    static class Config {
+    }
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 10, 0, 0);
+
+    @Autowired
+    private BookingRollupService rollupService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private ParkingSpot spot;
+    private Long providerId;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder().name("Owner").email("owner@test.com")
+                .password("secret").role(Role.PROVIDER).build());
+        Provider provider = providerRepository.save(Provider.builder().user(user).fullName("Owner")
+                .verificationStatus(Provider.VerificationStatus.APPROVED).build());
+        providerId = provider.getId();
+        spot = parkingSpotRepository.save(ParkingSpot.builder().provider(provider).name("Mall Parking")
+                .totalCapacity(10).pricePerHour(20.0).status(ParkingSpot.ParkingStatus.ACTIVE).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("booking_rollups", "bookings", "parking_spots", "providers", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    private void saveBooking(LocalDateTime start, LocalDateTime end, double price, Booking.BookingStatus status) {
+        bookingRepository.save(Booking.builder().user(user).parkingSpot(spot).startTime(start).endTime(end)
+                .totalPrice(price).status(status).build());
+    }
+
+    @Test
+    void testOccupancyIsSplitAcrossHourAndDayBuckets() {
+        // 23:30 to 01:15 the next day
+        rollupService.recordBooking(spot.getId(), providerId, DAY.withHour(23).withMinute(30),
+                DAY.plusDays(1).withHour(1).withMinute(15), 60.0);
+
+        List<RollupDTO> hours = rollupService.getProviderSeries(providerId, BookingRollup.Granularity.HOUR,
+                DAY, DAY.plusDays(2));
+        assertEquals(List.of(DAY.withHour(23), DAY.plusDays(1), DAY.plusDays(1).withHour(1)),
+                hours.stream().map(RollupDTO::getBucketStart).toList());
+        assertEquals(List.of(0.5, 1.0, 0.25), hours.stream().map(RollupDTO::getOccupiedSlotHours).toList());
+        assertEquals(60.0, hours.get(0).getRevenue());
+
+        List<RollupDTO> days = rollupService.getProviderSeries(providerId, BookingRollup.Granularity.DAY,
+                DAY, DAY.plusDays(2));
+        assertEquals(2, days.size());
+        assertEquals(1, days.get(0).getBookings());
+        assertEquals(0.5, days.get(0).getOccupiedSlotHours());
+        assertEquals(0, days.get(1).getBookings());
+        assertEquals(1.25, days.get(1).getOccupiedSlotHours());
+    }
+
+    @Test
+    void testIncrementalUpdatesMatchRebuild() {
+        LocalDateTime start = DAY.withHour(9);
+        saveBooking(start, start.plusHours(2), 40.0, Booking.BookingStatus.CONFIRMED);
+        rollupService.recordBooking(spot.getId(), providerId, start, start.plusHours(2), 40.0);
+        saveBooking(start, start.plusHours(1), 20.0, Booking.BookingStatus.CANCELLED);
+        rollupService.recordBooking(spot.getId(), providerId, start, start.plusHours(1), 20.0);
+        rollupService.recordCancellation(spot.getId(), providerId, start, start.plusHours(1), 20.0);
+        saveBooking(DAY.withHour(14), DAY.withHour(15), 20.0, Booking.BookingStatus.COMPLETED);
+        rollupService.recordBooking(spot.getId(), providerId, DAY.withHour(14), DAY.withHour(15), 20.0);
+
+        RollupDTO incremental = rollupService.getProviderTotals(providerId, BookingRollup.Granularity.DAY, DAY,
+                DAY.plusDays(1));
+        assertEquals(60.0, incremental.getRevenue());
+        assertEquals(3, incremental.getBookings());
+        assertEquals(1, incremental.getCancellations());
+        assertEquals(3.0, incremental.getOccupiedSlotHours());
+
+        assertEquals(3, rollupService.rebuild());
+
+        for (BookingRollup.Granularity granularity : BookingRollup.Granularity.values()) {
+            RollupDTO rebuilt = rollupService.getProviderTotals(providerId, granularity, DAY, DAY.plusDays(1));
+            assertEquals(incremental.getRevenue(), rebuilt.getRevenue());
+            assertEquals(incremental.getBookings(), rebuilt.getBookings());
+            assertEquals(incremental.getCancellations(), rebuilt.getCancellations());
+            assertEquals(incremental.getOccupiedSlotHours(), rebuilt.getOccupiedSlotHours());
+        }
+    }
+
+    @Test
+    void testOtherProvidersAndEmptyRangesReadAsZero() {
+        rollupService.recordBooking(spot.getId(), providerId, DAY.withHour(9), DAY.withHour(10), 20.0);
+
+        assertEquals(0.0, rollupService.getProviderTotals(providerId + 1, BookingRollup.Granularity.DAY, DAY,
+                DAY.plusDays(1)).getRevenue());
+        assertEquals(0.0, rollupService.getProviderTotals(providerId, BookingRollup.Granularity.DAY,
+                DAY.plusDays(1), DAY.plusDays(2)).getRevenue());
+        assertThrows(RuntimeException.class, () -> rollupService.getProviderSeries(providerId,
+                BookingRollup.Granularity.HOUR, DAY, DAY.plusDays(60)));
+    }
+}
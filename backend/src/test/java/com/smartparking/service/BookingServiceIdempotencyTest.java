@@ -0,0 +1,104 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.dto.BookingDTO;
+import com.smartparking.entity.*;
+import com.smartparking.repository.BookingRepository;
+import com.smartparking.repository.PaymentRepository;
+import com.smartparking.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class BookingServiceIdempotencyTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import({ BookingService.class, BookingCapacityLedger.class, BookingAvailabilityEngine.class,
+            AdminStatsService.class, BookingRollupService.class, BookingLifecycleService.class,
+            BookingIdempotencyCache.class, SnowflakeIdGenerator.class })
+    static class Config {
+    }
+
+    private static final LocalDateTime START = LocalDateTime.now().plusDays(1).withNano(0);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Long spotId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = entityManager.persist(User.builder().name("Owner").email("owner@test.com")
+                .password("secret").role(Role.PROVIDER).build());
+        Provider provider = entityManager.persist(Provider.builder().user(owner).fullName("Owner")
+                .verificationStatus(Provider.VerificationStatus.APPROVED).build());
+        spotId = entityManager.persist(ParkingSpot.builder().provider(provider).name("Mall Parking")
+                .totalCapacity(10).pricePerHour(20.0).status(ParkingSpot.ParkingStatus.ACTIVE).build()).getId();
+        User customer = entityManager.persist(User.builder().name("Customer").email("customer@test.com")
+                .password("secret").role(Role.USER).build());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(customer, null, customer.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private BookingDTO request(LocalDateTime start) {
+        return BookingDTO.builder().parkingSpotId(spotId).startTime(start).endTime(start.plusHours(2))
+                .paymentMethod("UPI").build();
+    }
+
+    @Test
+    void testRetryWithSameKeyReturnsTheOriginalBooking() {
+        BookingDTO first = bookingService.createBooking(request(START), "retry-1");
+        entityManager.flush();
+        entityManager.clear();
+
+        BookingDTO retry = bookingService.createBooking(request(START), "retry-1");
+
+        assertEquals(first.getId(), retry.getId());
+        assertEquals("UPI", retry.getPaymentMethod());
+        assertEquals(1, bookingRepository.count());
+        assertEquals(1, paymentRepository.count());
+        assertTrue(paymentRepository.findAll().get(0).getTransactionId().matches("TXN_\\d+"));
+
+        assertNotEquals(first.getId(), bookingService.createBooking(request(START), "retry-2").getId());
+        assertNotEquals(first.getId(), bookingService.createBooking(request(START), null).getId());
+        assertEquals(3, bookingRepository.count());
+    }
+
+    @Test
+    void testKeyReusedForADifferentBookingIsRejected() {
+        bookingService.createBooking(request(START), "reused");
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> bookingService.createBooking(request(START.plusHours(3)), "reused"));
+        assertTrue(error.getMessage().contains("different booking"));
+        assertThrows(RuntimeException.class, () -> bookingService.createBooking(request(START), "x".repeat(65)));
+    }
+}
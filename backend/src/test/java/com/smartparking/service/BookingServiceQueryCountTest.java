@@ -0,0 +1,152 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.dto.BookingDTO;
+import com.smartparking.dto.CursorPageDTO;
+import com.smartparking.entity.*;
+import com.smartparking.util.SnowflakeIdGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Booking history views must load in one statement per page regardless of how
+ * many bookings, spots and payments they cover.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BookingServiceQueryCountTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import({ BookingService.class, BookingCapacityLedger.class, BookingAvailabilityEngine.class,
+            AdminStatsService.class, BookingRollupService.class, BookingLifecycleService.class,
+            BookingIdempotencyCache.class, SnowflakeIdGenerator.class })
+    static class Config {
+    }
+
+    private static final int BOOKINGS = 25;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 10, 9, 0);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User owner;
+    private User customer;
+
+    @BeforeEach
+    void setUp() {
+        owner = entityManager.persist(User.builder().name("Owner").email("owner@test.com")
+                .password("secret").role(Role.PROVIDER).build());
+        Provider provider = entityManager.persist(Provider.builder().user(owner).fullName("Owner")
+                .verificationStatus(Provider.VerificationStatus.APPROVED).build());
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            spots.add(entityManager.persist(ParkingSpot.builder().provider(provider).name("Spot " + i)
+                    .totalCapacity(10).pricePerHour(20.0).status(ParkingSpot.ParkingStatus.ACTIVE).build()));
+        }
+
+        customer = entityManager.persist(User.builder().name("Customer").email("customer@test.com")
+                .password("secret").role(Role.USER).build());
+        for (int i = 0; i < BOOKINGS; i++) {
+            // Pairs of bookings share a start time so the cursor has to break ties on id
+            LocalDateTime start = START.plusHours(i / 2);
+            Booking booking = Booking.builder().user(customer).parkingSpot(spots.get(i % spots.size()))
+                    .startTime(start).endTime(start.plusHours(1)).totalPrice(20.0)
+                    .status(Booking.BookingStatus.CONFIRMED).build();
+            if (i % 2 == 0) {
+                booking.setPayment(Payment.builder().amount(20.0).paymentMethod(Payment.PaymentMethod.UPI)
+                        .status(Payment.PaymentStatus.SUCCESS).booking(booking).build());
+            }
+            entityManager.persist(booking);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void signIn(User user) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private long countStatements(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManager.clear();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void testUserHistoryLoadsInOneStatement() {
+        signIn(customer);
+        long statements = countStatements(() -> {
+            List<BookingDTO> bookings = bookingService.getUserBookings();
+            assertEquals(BOOKINGS, bookings.size());
+            assertEquals("UPI", bookings.get(0).getPaymentMethod());
+        });
+        assertEquals(1, statements);
+    }
+
+    @Test
+    void testOwnerHistoryLoadsInOneStatement() {
+        long statements = countStatements(
+                () -> assertEquals(BOOKINGS, bookingService.getBookingsByOwner(owner.getId()).size()));
+        assertEquals(1, statements);
+    }
+
+    @Test
+    void testPagesWalkTheHistoryOnceInOrder() {
+        signIn(customer);
+        List<BookingDTO> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            String next = cursor;
+            AtomicReference<CursorPageDTO<BookingDTO>> page = new AtomicReference<>();
+            assertEquals(1, countStatements(() -> page.set(bookingService.getUserBookingsPage(next, 10))));
+            seen.addAll(page.get().getItems());
+            cursor = page.get().getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(BOOKINGS, seen.size());
+        assertEquals(BOOKINGS, seen.stream().map(BookingDTO::getId).distinct().count());
+        for (int i = 1; i < seen.size(); i++) {
+            BookingDTO previous = seen.get(i - 1);
+            BookingDTO current = seen.get(i);
+            assertTrue(previous.getStartTime().isAfter(current.getStartTime())
+                    || (previous.getStartTime().equals(current.getStartTime()) && previous.getId() > current.getId()));
+        }
+
+        CursorPageDTO<BookingDTO> ownerPage = bookingService.getBookingsByOwnerPage(owner.getId(), null, 5);
+        assertEquals(5, ownerPage.getItems().size());
+        assertNotNull(ownerPage.getNextCursor());
+    }
+}
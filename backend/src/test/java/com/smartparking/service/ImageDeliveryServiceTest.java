@@ -0,0 +1,115 @@
+package com.smartparking.service;
+
+import com.smartparking.exception.NotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageDeliveryServiceTest {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @TempDir
+    Path dir;
+
+    private final ImageDeliveryService delivery = new ImageDeliveryService(100);
+
+    @Test
+    void testContentAddressedFileIsImmutableAndRevalidatesWith304() throws IOException {
+        Path file = write(HASH + ".png", "0123456789");
+
+        MockHttpServletResponse first = get(file, new MockHttpServletRequest("GET", "/uploads/x"));
+        assertEquals(200, first.getStatus());
+        assertEquals("\"" + HASH + ".png\"", first.getHeader(HttpHeaders.ETAG));
+        assertEquals("max-age=31536000, public, immutable", first.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertEquals("image/png", first.getContentType());
+        assertEquals("0123456789", first.getContentAsString());
+
+        MockHttpServletRequest revalidate = new MockHttpServletRequest("GET", "/uploads/x");
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + first.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse second = get(file, revalidate);
+        assertEquals(304, second.getStatus());
+        assertEquals(0, second.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testRangeRequests() throws IOException {
+        Path file = write(HASH + ".jpg", "0123456789");
+
+        MockHttpServletResponse partial = get(file, range("bytes=2-5"));
+        assertEquals(206, partial.getStatus());
+        assertEquals("bytes 2-5/10", partial.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", partial.getContentAsString());
+
+        assertEquals("789", get(file, range("bytes=-3")).getContentAsString());
+        assertEquals("89", get(file, range("bytes=8-100")).getContentAsString());
+
+        MockHttpServletResponse unsatisfiable = get(file, range("bytes=10-"));
+        assertEquals(416, unsatisfiable.getStatus());
+        assertEquals("bytes */10", unsatisfiable.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        // A stale If-Range or several ranges get the whole file
+        MockHttpServletRequest stale = range("bytes=2-5");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"old\"");
+        assertEquals(200, get(file, stale).getStatus());
+        assertEquals("0123456789", get(file, range("bytes=0-1,4-5")).getContentAsString());
+    }
+
+    @Test
+    void testTomcatSendfileGetsTheByteRangeInsteadOfABody() throws IOException {
+        Path file = write(HASH + ".jpg", "0123456789");
+        MockHttpServletRequest request = range("bytes=4-");
+        request.setAttribute(ImageDeliveryService.SENDFILE_SUPPORT, Boolean.TRUE);
+
+        MockHttpServletResponse response = get(file, request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(6, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute(ImageDeliveryService.SENDFILE_FILENAME));
+        assertEquals(4L, request.getAttribute(ImageDeliveryService.SENDFILE_START));
+        assertEquals(10L, request.getAttribute(ImageDeliveryService.SENDFILE_END));
+    }
+
+    @Test
+    void testOlderFilesAreTaggedWithTheirContentHashAndMissingFilesAre404() throws IOException {
+        Path file = write("0b6f8d6e_photo.jpg", "test");
+        MockHttpServletResponse response = get(file, new MockHttpServletRequest("GET", "/api/images/x"));
+        // SHA-256 of "test"
+        assertEquals("\"" + HASH + "\"", response.getHeader(HttpHeaders.ETAG));
+
+        MockHttpServletResponse provisional = new MockHttpServletResponse();
+        delivery.serve(file, true, new MockHttpServletRequest("HEAD", "/uploads/x"), provisional);
+        assertEquals("max-age=60, public", provisional.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertEquals(4, provisional.getContentLengthLong());
+        assertEquals(0, provisional.getContentAsByteArray().length);
+
+        assertThrows(NotFoundException.class, () -> get(dir.resolve("missing.jpg"),
+                new MockHttpServletRequest("GET", "/uploads/x")));
+    }
+
+    private MockHttpServletResponse get(Path file, MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        delivery.serve(file, false, request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest range(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/x");
+        request.addHeader(HttpHeaders.RANGE, range);
+        return request;
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,206 @@
+package com.smartparking.service;
+
+import com.smartparking.entity.ImageDirectoryType;
+import com.smartparking.storage.LocalBlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageStorageServiceTest {
+
+    @TempDir
+    Path base;
+
+    private ImageStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new ImageStorageService(new LocalBlobStore(base.toString()), base.resolve(".staging").toString(),
+                4, 2, 64, 256, 3600);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.shutdown();
+    }
+
+    @Test
+    void testStagedFilesKeepTheirPositionAndAppearWhenPromoted() throws IOException {
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            files.add(image("spot-" + i + ".jpg", i));
+        }
+        files.add(3, new MockMultipartFile("empty", "empty.jpg", "image/jpeg", new byte[0]));
+        files.add(null);
+
+        ImageStorageService.StagedImages staged = storage.stage(files);
+        assertEquals(10, count(base.resolve(".staging")));
+        assertEquals(1, count(base));
+
+        List<String> urls = staged.promote(ImageDirectoryType.PARKING_SPOT);
+
+        assertEquals(12, urls.size());
+        assertNull(urls.get(3));
+        assertNull(urls.get(11));
+        assertTrue(urls.get(0).matches("/uploads/" + ImageDirectoryType.PARKING_SPOT.getFolderName()
+                + "/([0-9a-f]{2})/\\1[0-9a-f]{62}\\.jpg"));
+        assertEquals(0, count(base.resolve(".staging")));
+        for (int i = 0; i < urls.size(); i++) {
+            if (urls.get(i) != null) {
+                int seed = i < 3 ? i : i - 1;
+                assertArrayEquals(bytes(seed), Files.readAllBytes(finalPath(urls.get(i))));
+            }
+        }
+    }
+
+    @Test
+    void testFailedStoreFailsThePromotionAndClearsStaging() throws IOException {
+        storage.shutdown();
+        // The store accepts the first file and then goes away, like S3 failing mid-submission
+        storage = new ImageStorageService(new LocalBlobStore(base.toString()) {
+            private int puts;
+
+            @Override
+            public void putFile(String key, Path source, String contentType) throws IOException {
+                if (++puts > 1) {
+                    throw new IOException("store unavailable");
+                }
+                super.putFile(key, source, contentType);
+            }
+        }, base.resolve(".staging").toString(), 4, 2, 64, 256, 3600);
+        ImageStorageService.StagedImages staged = storage.stage(List.of(image("a.png", 1), image("b.png", 2)));
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> staged.promote(ImageDirectoryType.APPLICATION));
+
+        assertEquals("store unavailable", error.getCause().getMessage());
+        assertEquals(0, count(base.resolve(".staging")));
+    }
+
+    @Test
+    void testFailedWriteDiscardsTheWholeSubmission() throws IOException {
+        MultipartFile broken = new MockMultipartFile("broken", "broken.jpg", "image/jpeg", new byte[] { 1 }) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("connection reset");
+            }
+        };
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> storage.stage(List.of(image("ok-1.jpg", 1), broken, image("ok-2.jpg", 2))));
+
+        assertTrue(error.getMessage().contains("broken.jpg"));
+        assertEquals(0, count(base.resolve(".staging")));
+    }
+
+    @Test
+    void testIdenticalUploadsShareOneFileAndGetRenditions() throws Exception {
+        byte[] png = png(600, 300);
+        ImageStorageService.StagedImages first = storage.stage(List.of(
+                new MockMultipartFile("a", "Photo.PNG", "image/png", png)));
+        ImageStorageService.StagedImages second = storage.stage(List.of(
+                new MockMultipartFile("b", "copy.png", "image/png", png)));
+        String url = first.promote(ImageDirectoryType.PARKING_SPOT).get(0);
+
+        assertEquals(url, second.promote(ImageDirectoryType.PARKING_SPOT).get(0));
+        assertTrue(url.endsWith(".png"));
+        assertEquals(0, count(base.resolve(".staging")));
+        assertArrayEquals(png, Files.readAllBytes(finalPath(url)));
+
+        String thumbnailUrl = ImageStorageService.derivativeUrl(url, ImageStorageService.Derivative.THUMBNAIL);
+        String mediumUrl = ImageStorageService.derivativeUrl(url, ImageStorageService.Derivative.MEDIUM);
+        BufferedImage thumbnail = awaitImage(finalPath(thumbnailUrl));
+        BufferedImage medium = awaitImage(finalPath(mediumUrl));
+        assertEquals(64, thumbnail.getWidth());
+        assertEquals(32, thumbnail.getHeight());
+        assertEquals(256, medium.getWidth());
+        assertEquals(url, ImageStorageService.originalOf(thumbnailUrl));
+        assertEquals(new ImageStorageService.ReadTarget(thumbnailUrl.substring("/uploads/".length()), false),
+                storage.resolveUpload(thumbnailUrl.substring("/uploads".length())));
+    }
+
+    @Test
+    void testMissingRenditionResolvesToItsOriginalAndStagingIsNotReachable() {
+        String original = "parking_spot/ab/" + "ab".repeat(32) + ".jpg";
+
+        assertEquals(new ImageStorageService.ReadTarget(original, true),
+                storage.resolveUpload("/" + original + ImageStorageService.Derivative.THUMBNAIL.getSuffix()));
+        assertEquals(new ImageStorageService.ReadTarget(original, false), storage.resolveUpload(original));
+        assertNull(storage.resolveUpload("/.staging/" + "ab".repeat(32) + ".jpg"));
+        assertNull(storage.resolveUpload("/parking_spot/../../etc/passwd"));
+        assertNull(storage.resolveStored("../secret.txt"));
+        assertTrue(storage.localFile(original).isPresent());
+        assertTrue(storage.directReadUrl(original).isEmpty());
+    }
+
+    @Test
+    void testImagesStoredBeforeContentAddressingHaveNoRenditions() {
+        String legacy = "/uploads/parking_spot/7/images/0b6f8d6e-5a1c-4a55-9d7e-1f0c2b7d9e11.jpg";
+
+        assertEquals(legacy, ImageStorageService.derivativeUrl(legacy, ImageStorageService.Derivative.THUMBNAIL));
+        assertEquals("https://example.com/a.jpg", ImageStorageService.derivativeUrl("https://example.com/a.jpg",
+                ImageStorageService.Derivative.MEDIUM));
+        assertNull(ImageStorageService.originalOf(legacy + ".thumb.jpg"));
+        assertNull(ImageStorageService.derivativeUrl(null, ImageStorageService.Derivative.THUMBNAIL));
+    }
+
+    // Renditions are written in the background after the original is in place
+    private static BufferedImage awaitImage(Path path) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!Files.exists(path)) {
+            assertTrue(System.currentTimeMillis() < deadline, "no rendition at " + path);
+            Thread.sleep(20);
+        }
+        return ImageIO.read(path.toFile());
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private Path finalPath(String url) {
+        return base.resolve(url.substring("/uploads/".length()));
+    }
+
+    private static MockMultipartFile image(String name, int seed) {
+        return new MockMultipartFile(name, name, "image/jpeg", bytes(seed));
+    }
+
+    // Over 2 MB, so each copy takes several transfer calls
+    private static byte[] bytes(int seed) {
+        byte[] data = new byte[(1 << 20) * 2 + seed];
+        Arrays.fill(data, (byte) seed);
+        return data;
+    }
+
+    private static long count(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
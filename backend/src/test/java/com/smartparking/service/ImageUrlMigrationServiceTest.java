@@ -0,0 +1,75 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.entity.ParkingSpot;
+import com.smartparking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ImageUrlMigrationServiceTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import(ImageUrlMigrationService.class)
+    static class Config {
+    }
+
+    @Autowired
+    private ImageUrlMigrationService migrationService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testLegacyUrlsAreRewrittenOnceAndCanonicalOnesLeftAlone() {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setName("legacy");
+        spot.setTotalCapacity(5);
+        spot.setPricePerHour(10.0);
+        spot.setStatus(ParkingSpot.ParkingStatus.ACTIVE);
+        spot.setImageUrls(new ArrayList<>(Arrays.asList(
+                "D:\\Infosys\\upload\\parking_spot\\3\\images\\a.jpg",
+                "b.png",
+                "/uploads/parking_spot/ab/ab12.jpg",
+                "/api/images/c.jpg",
+                "https://cdn.example.com/d.jpg")));
+        parkingSpotRepository.saveAndFlush(spot);
+
+        assertEquals(2, migrationService.migrate());
+
+        List<String> stored = jdbcTemplate.queryForList(
+                "SELECT image_url FROM parking_spot_images WHERE parking_spot_id = ?", String.class, spot.getId());
+        assertEquals(5, stored.size());
+        assertTrue(stored.containsAll(List.of(
+                "/uploads/parking_spot/3/images/a.jpg",
+                "/uploads/b.png",
+                "/uploads/parking_spot/ab/ab12.jpg",
+                "/api/images/c.jpg",
+                "https://cdn.example.com/d.jpg")));
+        assertEquals(0, migrationService.migrate());
+    }
+
+    @Test
+    void testNormalizeUrl() {
+        assertEquals("/uploads/provider_application/1/images/x.jpg",
+                ImageStorageService.normalizeUrl("D:\\Infosys\\upload\\provider_application\\1\\images\\x.jpg"));
+        assertEquals("/uploads/x.jpg", ImageStorageService.normalizeUrl("x.jpg"));
+        assertEquals("/uploads/x.jpg", ImageStorageService.normalizeUrl("/uploads/x.jpg"));
+        assertNull(ImageStorageService.normalizeUrl(null));
+    }
+}
@@ -0,0 +1,248 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.entity.*;
+import com.smartparking.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deactivating a spot cancels its future bookings in bulk and leaves the
+ * notifications to the outbox worker. Runs without a test transaction so the
+ * worker's own transactions see committed data.
+ */
+@DataJpaTest(properties = { "spring.datasource.url=jdbc:h2:mem:outbox_test;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "notification.outbox.batch-size=2" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationOutboxServiceTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import({ ParkingSpotService.class, ParkingSpotSpatialIndex.class, BookingCapacityLedger.class,
+            BookingAvailabilityEngine.class, NotificationOutboxService.class, NotificationPushService.class,
+            NotificationService.class, AdminStatsService.class, BookingRollupService.class })
+    static class Config {
+    }
+
+    @MockBean
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private NotificationOutboxService outboxService;
+
+    @Autowired
+    private NotificationPushService pushService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long spotId;
+    private Long pastBookingId;
+    private Long firstUserId;
+    private Long firstBookingId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.save(User.builder().name("Owner").email("owner@test.com")
+                .password("secret").role(Role.PROVIDER).build());
+        Provider provider = providerRepository.save(Provider.builder().user(owner).fullName("Owner")
+                .verificationStatus(Provider.VerificationStatus.APPROVED).build());
+        ParkingSpot spot = parkingSpotRepository.save(ParkingSpot.builder().provider(provider).name("Mall Parking")
+                .state("Karnataka").district("Bengaluru").latitude(12.97).longitude(77.59)
+                .totalCapacity(10).pricePerHour(20.0).status(ParkingSpot.ParkingStatus.ACTIVE).build());
+        spotId = spot.getId();
+
+        LocalDateTime tomorrow = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < 3; i++) {
+            User user = userRepository.save(User.builder().name("User " + i).email("user" + i + "@test.com")
+                    .password("secret").role(Role.USER).build());
+            Booking booking = saveBooking(user, spot, tomorrow.plusHours(i));
+            if (i == 0) {
+                firstUserId = user.getId();
+                firstBookingId = booking.getId();
+            }
+        }
+        pastBookingId = saveBooking(owner, spot, LocalDateTime.now().minusDays(1)).getId();
+    }
+
+    private Booking saveBooking(User user, ParkingSpot spot, LocalDateTime start) {
+        Booking booking = Booking.builder().user(user).parkingSpot(spot).startTime(start)
+                .endTime(start.plusHours(2)).totalPrice(40.0).status(Booking.BookingStatus.CONFIRMED).build();
+        booking.setPayment(Payment.builder().amount(40.0).status(Payment.PaymentStatus.SUCCESS)
+                .booking(booking).build());
+        return bookingRepository.save(booking);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("notifications", "notification_outbox", "booking_rollups", "payments",
+                "bookings", "parking_spot_vehicles", "parking_spot_images", "parking_spots", "providers", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void testDeactivationCancelsInBulkAndDefersNotifications() {
+        parkingSpotService.updateStatus(spotId, "MAINTENANCE");
+
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM bookings WHERE status = 'CANCELLED'", Integer.class));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payments WHERE status = 'REFUNDED'", Integer.class));
+        assertEquals("CONFIRMED", jdbcTemplate.queryForObject(
+                "SELECT status FROM bookings WHERE id = ?", String.class, pastBookingId));
+
+        assertEquals(0, notificationRepository.count());
+        List<NotificationOutbox> outbox = outboxRepository.findAll();
+        assertEquals(1, outbox.size());
+        assertEquals(NotificationOutbox.OutboxStatus.PENDING, outbox.get(0).getStatus());
+    }
+
+    @Test
+    void testWorkerDeliversEachBatchOnce() throws InterruptedException {
+        NotificationPushServiceTest.RecordingEmitter stream = new NotificationPushServiceTest.RecordingEmitter();
+        pushService.register(firstUserId, stream, null);
+        parkingSpotService.updateStatus(spotId, "MAINTENANCE");
+
+        assertEquals(1, outboxService.drain());
+        assertEquals(0, outboxService.drain());
+
+        List<Notification> notifications = notificationRepository.findAll();
+        assertEquals(3, notifications.size());
+        assertTrue(notifications.stream().allMatch(n -> n.getMessage().contains("Mall Parking") && !n.isRead()));
+        assertEquals(NotificationOutbox.OutboxStatus.SENT, outboxRepository.findAll().get(0).getStatus());
+
+        // The connected user is pushed their notification, with the id it was stored under
+        for (int i = 0; i < 200 && stream.ids().isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Long stored = notifications.stream().filter(n -> n.getUser().getId().equals(firstUserId))
+                .findFirst().orElseThrow().getId();
+        assertEquals(List.of(String.valueOf(stored)), stream.ids());
+    }
+
+    // A user cancelling while the spot is deactivated must not get a second refund, release or notice
+    @Test
+    void testBookingCancelledConcurrentlyIsNotCancelledAgain() throws Exception {
+        CountDownLatch userHoldsLock = new CountDownLatch(1);
+        CountDownLatch userMayCommit = new CountDownLatch(1);
+        CompletableFuture<Void> userCancel = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    // Same steps as BookingService.cancelBooking
+                    Booking booking = bookingRepository.findByIdForUpdate(firstBookingId).orElseThrow();
+                    booking.setStatus(Booking.BookingStatus.CANCELLED);
+                    booking.getPayment().setStatus(Payment.PaymentStatus.REFUNDED);
+                    bookingRepository.saveAndFlush(booking);
+                    userHoldsLock.countDown();
+                    try {
+                        userMayCommit.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(userHoldsLock.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> deactivation = CompletableFuture.runAsync(
+                () -> parkingSpotService.updateStatus(spotId, "MAINTENANCE"));
+        // The deactivation waits on the locked booking until the user's cancellation commits
+        Thread.sleep(300);
+        assertFalse(deactivation.isDone());
+        userMayCommit.countDown();
+        userCancel.get(10, TimeUnit.SECONDS);
+        deactivation.get(10, TimeUnit.SECONDS);
+
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM bookings WHERE status = 'CANCELLED'", Integer.class));
+        // Rollups take back the two bookings the deactivation cancelled, not the user's
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT SUM(cancellations) FROM booking_rollups WHERE granularity = 'DAY'", Integer.class));
+        assertEquals(-80.0, jdbcTemplate.queryForObject(
+                "SELECT SUM(revenue) FROM booking_rollups WHERE granularity = 'DAY'", Double.class), 1e-9);
+        assertEquals(1, outboxService.drain());
+        List<Notification> notifications = notificationRepository.findAll();
+        assertEquals(2, notifications.size());
+        assertTrue(notifications.stream().noneMatch(n -> n.getUser().getId().equals(firstUserId)));
+    }
+
+    @Test
+    void testFailedRowsBackOffInsteadOfRetryingEveryPass() {
+        for (int i = 0; i < 3; i++) {
+            outboxRepository.save(NotificationOutbox.builder().title("Broken").type("info")
+                    .recipients("not json").status(NotificationOutbox.OutboxStatus.PENDING).build());
+        }
+
+        // A full batch of failures is not fetched again within the pass
+        assertEquals(0, outboxService.drain());
+        List<NotificationOutbox> rows = outboxRepository.findAll();
+        assertEquals(3, rows.size());
+        for (NotificationOutbox row : rows) {
+            assertEquals(1, row.getAttempts());
+            assertEquals(NotificationOutbox.OutboxStatus.PENDING, row.getStatus());
+            assertTrue(row.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(20)));
+        }
+
+        // Nothing is due yet
+        assertEquals(0, outboxService.drain());
+        assertTrue(outboxRepository.findAll().stream().allMatch(row -> row.getAttempts() == 1));
+
+        jdbcTemplate.update("UPDATE notification_outbox SET next_attempt_at = ?", LocalDateTime.now().minusSeconds(1));
+        assertEquals(0, outboxService.drain());
+        for (NotificationOutbox row : outboxRepository.findAll()) {
+            assertEquals(2, row.getAttempts());
+            assertTrue(row.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(50)));
+        }
+    }
+
+    @Test
+    void testRetryBackoffDoublesUpToTheCap() {
+        assertEquals(30_000, outboxService.retryBackoff(1));
+        assertEquals(60_000, outboxService.retryBackoff(2));
+        assertEquals(240_000, outboxService.retryBackoff(4));
+        assertEquals(1_800_000, outboxService.retryBackoff(7));
+        assertEquals(1_800_000, outboxService.retryBackoff(100));
+    }
+}
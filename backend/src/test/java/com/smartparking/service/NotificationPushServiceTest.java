@@ -0,0 +1,133 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.NotificationDTO;
+import com.smartparking.entity.Notification;
+import com.smartparking.repository.NotificationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotificationPushServiceTest {
+
+    private final NotificationRepository repository = mock(NotificationRepository.class);
+    private final NotificationPushService service = new NotificationPushService(repository, 5, 60_000, 1);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    // Records the raw SSE text instead of writing to a response
+    static class RecordingEmitter extends SseEmitter {
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.add(builder.build().stream().map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        List<String> ids() {
+            return sent.stream().filter(s -> s.startsWith("id:"))
+                    .map(s -> s.substring(3, s.indexOf('\n'))).toList();
+        }
+    }
+
+    private static NotificationDTO dto(long id) {
+        return NotificationDTO.builder().id(id).title("t").message("m" + id).type("info").build();
+    }
+
+    private static void await(RecordingEmitter emitter, int events) throws InterruptedException {
+        for (int i = 0; i < 200 && emitter.ids().size() < events; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testLiveNotificationsReachOnlyTheirUser() throws InterruptedException {
+        RecordingEmitter alice = new RecordingEmitter();
+        RecordingEmitter bob = new RecordingEmitter();
+        service.register(1L, alice, null);
+        service.register(2L, bob, null);
+
+        service.publish(1L, dto(10));
+        service.publish(1L, dto(11));
+        await(alice, 2);
+
+        assertEquals(List.of("10", "11"), alice.ids());
+        assertTrue(bob.ids().isEmpty());
+    }
+
+    @Test
+    void testReconnectResumesAfterLastEventId() throws InterruptedException {
+        List<Notification> missed = LongStream.of(8, 9).mapToObj(id -> Notification.builder().id(id)
+                .title("t").message("m").type("info").build()).toList();
+        when(repository.findByUserIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(7L), any(Pageable.class)))
+                .thenReturn(missed);
+
+        RecordingEmitter emitter = new RecordingEmitter();
+        service.register(1L, emitter, 7L);
+        service.publish(1L, dto(10));
+        await(emitter, 3);
+
+        assertEquals(List.of("8", "9", "10"), emitter.ids());
+    }
+
+    @Test
+    void testTooManyMissedAsksClientToResync() throws InterruptedException {
+        List<Notification> missed = LongStream.rangeClosed(1, 6).mapToObj(id -> Notification.builder().id(id)
+                .title("t").message("m").type("info").build()).toList();
+        when(repository.findByUserIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(0L), any(Pageable.class)))
+                .thenReturn(missed);
+
+        RecordingEmitter emitter = new RecordingEmitter();
+        service.register(1L, emitter, 0L);
+        for (int i = 0; i < 200 && emitter.sent.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, emitter.sent.size());
+        assertTrue(emitter.sent.get(0).contains("event:resync"));
+    }
+
+    @Test
+    void testSlowClientIsDisconnectedInsteadOfBlockingProducer() {
+        RecordingEmitter slow = new RecordingEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        service.register(1L, slow, null);
+
+        long start = System.nanoTime();
+        for (long id = 1; id <= 20; id++) {
+            service.publish(1L, dto(id));
+        }
+
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        assertTrue(slow.completed);
+        assertEquals(0, service.connectionCount());
+    }
+}
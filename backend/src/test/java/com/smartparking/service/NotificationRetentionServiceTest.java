@@ -0,0 +1,144 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.entity.Role;
+import com.smartparking.entity.User;
+import com.smartparking.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:retention_test;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "notification.retention.max-age-days=30",
+        "notification.retention.max-per-user=5",
+        "notification.retention.chunk-size=3" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationRetentionServiceTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import({ NotificationRetentionService.class, NotificationService.class })
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 6, 1, 12, 0);
+
+    @Autowired
+    private NotificationRetentionService retentionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TempDir
+    Path archiveDir;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM notifications");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    private Long user(String email) {
+        return userRepository.save(User.builder().name(email).email(email).password("x").role(Role.USER).build())
+                .getId();
+    }
+
+    private void insert(Long userId, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO notifications (user_id, title, message, type, is_read, created_at) "
+                + "VALUES (?, 'T', 'M', 'info', false, ?)", userId, Timestamp.valueOf(createdAt));
+    }
+
+    private List<Timestamp> remaining(Long userId) {
+        return jdbcTemplate.queryForList(
+                "SELECT created_at FROM notifications WHERE user_id = ? ORDER BY created_at", Timestamp.class, userId);
+    }
+
+    @Test
+    void testPrunesByAgeAndPerUserCap() {
+        Long quiet = user("quiet@test.com");
+        Long busy = user("busy@test.com");
+        // Old rows first, as ids follow creation time
+        for (int i = 0; i < 4; i++) {
+            insert(quiet, NOW.minusDays(60 - i));
+        }
+        for (int i = 0; i < 3; i++) {
+            insert(quiet, NOW.minusDays(3 - i));
+        }
+        for (int i = 0; i < 8; i++) {
+            insert(busy, NOW.minusHours(8 - i));
+        }
+
+        NotificationRetentionService.RetentionResult result = retentionService.run(NOW);
+
+        assertEquals(3, remaining(quiet).size());
+        List<Timestamp> busyLeft = remaining(busy);
+        assertEquals(5, busyLeft.size());
+        assertEquals(NOW.minusHours(5), busyLeft.get(0).toLocalDateTime());
+
+        assertEquals(7, result.deleted());
+        assertEquals(7.0, meterRegistry.get("notifications.retention.deleted").counter().count());
+        assertTrue(meterRegistry.get("notifications.retention.scanned").counter().count() >= 7.0);
+    }
+
+    @Test
+    void testArchivesRowsBeforeDeleting() throws Exception {
+        Long userId = user("archive@test.com");
+        insert(userId, NOW.minusDays(45));
+        insert(userId, NOW.minusDays(40));
+        insert(userId, NOW.minusDays(1));
+        ReflectionTestUtils.setField(retentionService, "archiveEnabled", true);
+        ReflectionTestUtils.setField(retentionService, "archiveDir", archiveDir.toString());
+        try {
+            retentionService.run(NOW);
+        } finally {
+            ReflectionTestUtils.setField(retentionService, "archiveEnabled", false);
+        }
+
+        List<Path> files;
+        try (var listing = Files.list(archiveDir)) {
+            files = listing.toList();
+        }
+        assertEquals(1, files.size());
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(Files.newInputStream(files.get(0)))))) {
+            List<String> lines = reader.lines().toList();
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).contains("\"user_id\":" + userId));
+        }
+        assertEquals(1, remaining(userId).size());
+    }
+}
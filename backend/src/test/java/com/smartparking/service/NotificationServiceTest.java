@@ -0,0 +1,127 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.dto.CursorPageDTO;
+import com.smartparking.dto.NotificationDTO;
+import com.smartparking.entity.Role;
+import com.smartparking.entity.User;
+import com.smartparking.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:notification_test;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationServiceTest {
+
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import(NotificationService.class)
+    static class Config {
+    }
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 9, 0);
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+    private Long otherUserId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.save(User.builder().name("A").email("a@test.com").password("x")
+                .role(Role.USER).build()).getId();
+        otherUserId = userRepository.save(User.builder().name("B").email("b@test.com").password("x")
+                .role(Role.USER).build()).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM notifications");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    private long insert(Long owner, LocalDateTime createdAt, boolean read) {
+        jdbcTemplate.update("INSERT INTO notifications (user_id, title, message, type, is_read, created_at) "
+                + "VALUES (?, 'T', 'M', 'info', ?, ?)", owner, read, Timestamp.valueOf(createdAt));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM notifications", Long.class);
+    }
+
+    @Test
+    void testFeedPagesNewestFirstWithoutGapsOrRepeats() {
+        for (int i = 0; i < 25; i++) {
+            // Pairs share a timestamp so the id tie-breaker is exercised
+            insert(userId, BASE.plusMinutes(i / 2), false);
+        }
+        insert(otherUserId, BASE.plusDays(1), false);
+
+        List<NotificationDTO> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPageDTO<NotificationDTO> page = notificationService.getFeed(userId, cursor, 10);
+            seen.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(25, seen.size());
+        assertEquals(25, new HashSet<>(seen.stream().map(NotificationDTO::getId).toList()).size());
+        for (int i = 1; i < seen.size(); i++) {
+            NotificationDTO prev = seen.get(i - 1);
+            NotificationDTO next = seen.get(i);
+            assertTrue(prev.getCreatedAt().isAfter(next.getCreatedAt())
+                    || (prev.getCreatedAt().equals(next.getCreatedAt()) && prev.getId() > next.getId()));
+        }
+    }
+
+    @Test
+    void testUnreadCounterFollowsReadsCreatesAndDeletes() {
+        long first = insert(userId, BASE, false);
+        long second = insert(userId, BASE.plusMinutes(1), false);
+        insert(userId, BASE.plusMinutes(2), false);
+        insert(userId, BASE.plusMinutes(3), true);
+        insert(otherUserId, BASE, false);
+
+        assertEquals(3, notificationService.getUnreadCount(userId));
+
+        notificationService.markAsRead(first);
+        notificationService.markAsRead(first);
+        assertEquals(2, notificationService.getUnreadCount(userId));
+
+        insert(userId, BASE.plusMinutes(4), false);
+        notificationService.onCreated(userId, 1);
+        assertEquals(3, notificationService.getUnreadCount(userId));
+
+        notificationService.delete(second);
+        assertEquals(2, notificationService.getUnreadCount(userId));
+
+        assertEquals(2, notificationService.markAllAsRead(userId));
+        assertEquals(0, notificationService.getUnreadCount(userId));
+        assertEquals(1, notificationService.getUnreadCount(otherUserId));
+    }
+}
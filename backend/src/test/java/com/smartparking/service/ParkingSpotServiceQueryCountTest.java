@@ -0,0 +1,164 @@
+package com.smartparking.service;
+
+import com.smartparking.SmartParkingBackendApplication;
+import com.smartparking.dto.ParkingSpotResponseDTO;
+import com.smartparking.entity.ParkingSpot;
+import com.smartparking.entity.Provider;
+import com.smartparking.entity.Role;
+import com.smartparking.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the list endpoints against N+1 loading: each must stay within a fixed
+ * number of statements no matter how many spots are returned.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ParkingSpotServiceQueryCountTest {
+
+    // Keeps the slice away from the application's CommandLineRunner beans
+    @SpringBootConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SmartParkingBackendApplication.class)
+    @Import({ ParkingSpotService.class, ParkingSpotSpatialIndex.class, BookingCapacityLedger.class,
+            BookingAvailabilityEngine.class, NotificationOutboxService.class, NotificationPushService.class,
+            NotificationService.class, AdminStatsService.class, BookingRollupService.class })
+    static class Config {
+    }
+
+    private static final int SPOTS = 30;
+    // spots + vehicle types batch + images batch
+    private static final long MAX_STATEMENTS = 3;
+
+    @MockBean
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private ParkingSpotSpatialIndex spatialIndex;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long providerId;
+
+    @BeforeEach
+    void setUp() {
+        List<Provider> providers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = entityManager.persist(User.builder()
+                    .name("Owner " + i)
+                    .email("owner" + i + "@test.com")
+                    .password("secret")
+                    .role(Role.PROVIDER)
+                    .build());
+            providers.add(entityManager.persist(Provider.builder()
+                    .user(user)
+                    .fullName("Owner " + i)
+                    .verificationStatus(Provider.VerificationStatus.APPROVED)
+                    .build()));
+        }
+        providerId = providers.get(0).getId();
+
+        for (int i = 0; i < SPOTS; i++) {
+            entityManager.persist(ParkingSpot.builder()
+                    .provider(providers.get(i % providers.size()))
+                    .name("Spot " + i)
+                    .state("Karnataka")
+                    .district("Bengaluru")
+                    .latitude(12.97 + i * 0.001)
+                    .longitude(77.59)
+                    .totalCapacity(10)
+                    .pricePerHour(20.0)
+                    .vehicleTypes(Set.of("CAR", "BIKE"))
+                    .imageUrls(List.of("/uploads/a" + i + ".jpg", "/uploads/b" + i + ".jpg"))
+                    .status(ParkingSpot.ParkingStatus.ACTIVE)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        spatialIndex.load();
+    }
+
+    private long countStatements(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManager.clear();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void testGetAllParkingSpots() {
+        long statements = countStatements(() -> assertEquals(SPOTS, parkingSpotService.getAllParkingSpots().size()));
+        assertTrue(statements <= MAX_STATEMENTS, "statements: " + statements);
+    }
+
+    @Test
+    void testSearchParkingSpots() {
+        long statements = countStatements(
+                () -> assertEquals(SPOTS, parkingSpotService.searchParkingSpots("Karnataka", "Bengaluru").size()));
+        assertTrue(statements <= MAX_STATEMENTS, "statements: " + statements);
+    }
+
+    @Test
+    void testGetParkingSpotsByOwner() {
+        long statements = countStatements(
+                () -> assertEquals(SPOTS / 3, parkingSpotService.getParkingSpotsByOwner(providerId).size()));
+        assertTrue(statements <= MAX_STATEMENTS, "statements: " + statements);
+    }
+
+    @Test
+    void testGetAllParkingSpotsPage() {
+        long statements = countStatements(
+                () -> assertEquals(20, parkingSpotService.getAllParkingSpotsPage(null, 20).getItems().size()));
+        assertTrue(statements <= MAX_STATEMENTS, "statements: " + statements);
+    }
+
+    @Test
+    void testGetNearbyParkingSpots() {
+        long statements = countStatements(
+                () -> assertEquals(SPOTS, parkingSpotService.getNearbyParkingSpots(12.97, 77.59, 10, 0, 100).size()));
+        assertTrue(statements <= MAX_STATEMENTS, "statements: " + statements);
+    }
+
+    @Test
+    void testNearbyWithoutPagingReturnsEveryMatch() {
+        List<ParkingSpotResponseDTO> all = parkingSpotService.getNearbyParkingSpots(12.97, 77.59, 10);
+        List<ParkingSpotResponseDTO> secondPage = parkingSpotService.getNearbyParkingSpots(12.97, 77.59, 10, 1, 5);
+
+        assertEquals(SPOTS, all.size());
+        assertEquals(5, secondPage.size());
+        assertEquals(all.subList(5, 10).stream().map(ParkingSpotResponseDTO::getId).collect(Collectors.toList()),
+                secondPage.stream().map(ParkingSpotResponseDTO::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testImageUrlsArePassedThroughReadOnly() {
+        ParkingSpotResponseDTO first = parkingSpotService.getAllParkingSpotsPage(null, 1).getItems().get(0);
+
+        assertEquals(List.of("/uploads/a0.jpg", "/uploads/b0.jpg"), first.getImageUrls());
+        assertThrows(UnsupportedOperationException.class, () -> first.getImageUrls().add("/uploads/c.jpg"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.smartparking.service;
+
+import com.smartparking.dto.SpotDistance;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParkingSpotSpatialIndexTest {
+
+    @Test
+    void testAntimeridianWrap() {
+        ParkingSpotSpatialIndex index = new ParkingSpotSpatialIndex(null, 0.05);
+        index.put(1L, 0.0, 179.99);
+        index.put(2L, 0.0, -179.99);
+        index.put(3L, 0.0, 170.0);
+
+        List<SpotDistance> hits = index.findWithin(0.0, 179.999, 5);
+        assertEquals(List.of(1L, 2L), hits.stream().map(SpotDistance::getSpotId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testRemoveAndMove() {
+        ParkingSpotSpatialIndex index = new ParkingSpotSpatialIndex(null, 0.05);
+        index.put(1L, 12.97, 77.59);
+        assertEquals(1, index.findWithin(12.97, 77.59, 1).size());
+
+        index.put(1L, 28.61, 77.20);
+        assertTrue(index.findWithin(12.97, 77.59, 1).isEmpty());
+        assertEquals(1, index.findWithin(28.61, 77.20, 1).size());
+
+        index.remove(1L);
+        assertTrue(index.findWithin(28.61, 77.20, 1).isEmpty());
+        assertEquals(0, index.size());
+    }
+}
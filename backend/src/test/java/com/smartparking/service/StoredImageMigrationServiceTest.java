@@ -0,0 +1,110 @@
+package com.smartparking.service;
+
+import com.smartparking.storage.LocalBlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoredImageMigrationServiceTest {
+
+    private static final String NAME = "0b6f8d6e-5a1c-4a55-9d7e-1f0c2b7d9e11_gate photo.jpg";
+
+    @TempDir
+    Path base;
+
+    @TempDir
+    Path legacy;
+
+    @TempDir
+    Path uploads;
+
+    private ImageStorageService storage;
+    private StoredImageMigrationService migration;
+
+    @BeforeEach
+    void setUp() {
+        storage = new ImageStorageService(new LocalBlobStore(base.toString()), base.resolve(".staging").toString(),
+                1, 1, 64, 256, 3600);
+        migration = new StoredImageMigrationService(storage, legacy.toString(), "local", base.toString(), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.shutdown();
+    }
+
+    private Path storedFile(String filename) {
+        return storage.localFile(storage.resolveStored(filename).key()).orElseThrow();
+    }
+
+    @Test
+    void testLegacyFilesAreMovedToWhereTheirUrlsResolve() throws IOException {
+        Files.write(legacy.resolve(NAME), new byte[] { 1, 2, 3 });
+        Files.write(legacy.resolve(".hidden"), new byte[] { 4 });
+        Files.createDirectory(legacy.resolve("nested"));
+
+        assertEquals(1, migration.migrate());
+
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(storedFile(NAME)));
+        assertFalse(Files.exists(legacy.resolve(NAME)));
+        assertTrue(Files.exists(legacy.resolve(".hidden")));
+        assertEquals(0, migration.migrate());
+    }
+
+    @Test
+    void testNameAlreadyInStorageIsLeftInPlace() throws IOException {
+        Files.write(legacy.resolve(NAME), new byte[] { 1 });
+        Path stored = storedFile(NAME);
+        Files.createDirectories(stored.getParent());
+        Files.write(stored, new byte[] { 2 });
+
+        assertEquals(0, migration.migrate());
+
+        assertArrayEquals(new byte[] { 2 }, Files.readAllBytes(stored));
+        assertTrue(Files.exists(legacy.resolve(NAME)));
+    }
+
+    @Test
+    void testMissingLegacyFolderIsNothingToDo() {
+        assertEquals(0, new StoredImageMigrationService(storage, legacy.resolve("absent").toString(), "local",
+                base.toString(), false)
+                .migrate());
+    }
+
+    // The store stands in for a remote one; the old local uploads folder is separate
+    @Test
+    void testLocalUploadsAreMovedIntoAStoreThatIsNotLocal() throws IOException {
+        String key = "parking_spot/7/images/0b6f8d6e-5a1c-4a55-9d7e-1f0c2b7d9e11.jpg";
+        Files.createDirectories(uploads.resolve("parking_spot/7/images"));
+        Files.write(uploads.resolve(key), new byte[] { 1, 2, 3 });
+        Files.createDirectories(uploads.resolve(".staging"));
+        Files.write(uploads.resolve(".staging/leftover.jpg"), new byte[] { 4 });
+        StoredImageMigrationService remote = new StoredImageMigrationService(storage, legacy.toString(), "s3",
+                uploads.toString(), false);
+
+        assertEquals(1, remote.migrate());
+
+        ImageStorageService.ReadTarget target = storage.resolveUpload("/" + key);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(storage.localFile(target.key()).orElseThrow()));
+        assertFalse(Files.exists(uploads.resolve(key)));
+        assertTrue(Files.exists(uploads.resolve(".staging/leftover.jpg")));
+        assertEquals(0, remote.migrate());
+    }
+
+    @Test
+    void testLocalUploadsStayWhereTheLocalStoreServesThem() throws IOException {
+        Files.createDirectories(uploads.resolve("parking_spot/7/images"));
+        Files.write(uploads.resolve("parking_spot/7/images/a.jpg"), new byte[] { 1 });
+
+        assertEquals(0, new StoredImageMigrationService(storage, legacy.toString(), "local", uploads.toString(), false)
+                .migrate());
+        assertTrue(Files.exists(uploads.resolve("parking_spot/7/images/a.jpg")));
+    }
+}
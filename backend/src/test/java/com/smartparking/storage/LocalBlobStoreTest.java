@@ -0,0 +1,57 @@
+package com.smartparking.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalBlobStoreTest {
+
+    @TempDir
+    Path base;
+
+    @TempDir
+    Path staging;
+
+    @Test
+    void testPutMovesTheFileUnderItsKey() throws IOException {
+        LocalBlobStore store = new LocalBlobStore(base.toString());
+        Path source = Files.write(staging.resolve("upload.tmp"), new byte[] { 1, 2, 3 });
+
+        assertFalse(store.exists("parking_spot/ab/abc.jpg"));
+        store.putFile("parking_spot/ab/abc.jpg", source, "image/jpeg");
+
+        assertTrue(store.exists("parking_spot/ab/abc.jpg"));
+        assertFalse(Files.exists(source));
+        assertEquals(base.resolve("parking_spot/ab/abc.jpg").toAbsolutePath(),
+                store.localFile("parking_spot/ab/abc.jpg").orElseThrow());
+        try (InputStream in = store.open("parking_spot/ab/abc.jpg")) {
+            assertArrayEquals(new byte[] { 1, 2, 3 }, in.readAllBytes());
+        }
+        assertTrue(store.directReadUrl("parking_spot/ab/abc.jpg", Duration.ofMinutes(5)).isEmpty());
+    }
+
+    @Test
+    void testKeysCannotLeaveTheBaseFolder() throws IOException {
+        LocalBlobStore store = new LocalBlobStore(base.resolve("store").toString());
+        Path source = Files.write(staging.resolve("upload.tmp"), new byte[] { 1 });
+
+        for (String key : new String[] { "../outside.jpg", "a/../../outside.jpg", "/etc/passwd", "a//b.jpg",
+                ".staging/x.jpg", "a\\..\\b.jpg", "" }) {
+            assertFalse(BlobStore.isValidKey(key), key);
+            assertFalse(store.exists(key), key);
+            assertTrue(store.localFile(key).isEmpty(), key);
+            assertThrows(IllegalArgumentException.class, () -> store.putFile(key, source, "image/jpeg"), key);
+        }
+        assertThrows(NoSuchFileException.class, () -> store.open("../outside.jpg"));
+        assertThrows(NoSuchFileException.class, () -> store.open("missing.jpg"));
+        assertTrue(Files.exists(source));
+    }
+}
@@ -0,0 +1,163 @@
+package com.smartparking.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class S3BlobStoreTest {
+
+    private static final int PART_SIZE = S3BlobStore.MIN_PART_SIZE;
+
+    @TempDir
+    Path staging;
+
+    private S3Client s3;
+    private S3Presigner presigner;
+    private S3BlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        // The request-builder overloads are default methods that delegate to the mocked ones
+        s3 = mock(S3Client.class, withSettings().defaultAnswer(CALLS_REAL_METHODS));
+        presigner = S3Presigner.builder()
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create("http://localhost:9000"))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .build();
+        store = new S3BlobStore(s3, presigner, "images", PART_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        presigner.close();
+    }
+
+    @Test
+    void testSmallFileIsOnePut() throws IOException {
+        Path source = Files.write(staging.resolve("small.tmp"), new byte[1024]);
+        doReturn(PutObjectResponse.builder().build()).when(s3)
+                .putObject(any(PutObjectRequest.class), any(RequestBody.class));
+
+        store.putFile("parking_spot/ab/abc.jpg", source, "image/jpeg");
+
+        verify(s3).putObject(argThat((PutObjectRequest request) -> request.bucket().equals("images")
+                && request.key().equals("parking_spot/ab/abc.jpg") && request.contentType().equals("image/jpeg")),
+                any(RequestBody.class));
+        verify(s3, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void testLargeFileIsUploadedInParts() throws IOException {
+        byte[] data = new byte[PART_SIZE * 2 + 100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i / PART_SIZE + 1);
+        }
+        Path source = Files.write(staging.resolve("large.tmp"), data);
+        List<byte[]> parts = new ArrayList<>();
+        doReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build()).when(s3)
+                .createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        doAnswer(invocation -> {
+            // The part buffer is reused, so copy it before the next part
+            RequestBody body = invocation.getArgument(1);
+            try (InputStream in = body.contentStreamProvider().newStream()) {
+                parts.add(in.readAllBytes());
+            }
+            UploadPartRequest request = invocation.getArgument(0);
+            return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        }).when(s3).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        doReturn(CompleteMultipartUploadResponse.builder().build()).when(s3)
+                .completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+
+        store.putFile("parking_spot/cd/cde.png", source, "image/png");
+
+        assertEquals(3, parts.size());
+        assertEquals(PART_SIZE, parts.get(0).length);
+        assertEquals(100, parts.get(2).length);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(data, PART_SIZE, PART_SIZE * 2), parts.get(1)));
+        verify(s3).completeMultipartUpload(argThat((CompleteMultipartUploadRequest request) ->
+                request.uploadId().equals("upload-1")
+                        && request.multipartUpload().parts().size() == 3
+                        && request.multipartUpload().parts().get(2).eTag().equals("etag-3")));
+        verify(s3, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void testFailedPartAbortsTheUploadAndKeepsTheSource() throws IOException {
+        Path source = Files.write(staging.resolve("large.tmp"), new byte[PART_SIZE + 1]);
+        doReturn(CreateMultipartUploadResponse.builder().uploadId("upload-2").build()).when(s3)
+                .createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        doThrow(S3Exception.builder().message("slow down").statusCode(503).build()).when(s3)
+                .uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        doReturn(null).when(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+
+        assertThrows(IOException.class, () -> store.putFile("parking_spot/ef/efg.jpg", source, "image/jpeg"));
+
+        verify(s3).abortMultipartUpload(argThat((AbortMultipartUploadRequest request) ->
+                request.uploadId().equals("upload-2") && request.key().equals("parking_spot/ef/efg.jpg")));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        assertTrue(Files.exists(source));
+    }
+
+    @Test
+    void testExistsMapsMissingObjectsToFalse() {
+        doReturn(HeadObjectResponse.builder().build()).when(s3).headObject(
+                argThat((HeadObjectRequest request) -> request != null && request.key().equals("present.jpg")));
+        doThrow(NoSuchKeyException.builder().statusCode(404).build()).when(s3).headObject(
+                argThat((HeadObjectRequest request) -> request != null && request.key().equals("missing.jpg")));
+        doThrow(S3Exception.builder().statusCode(403).build()).when(s3).headObject(
+                argThat((HeadObjectRequest request) -> request != null && request.key().equals("denied.jpg")));
+
+        assertTrue(store.exists("present.jpg"));
+        assertFalse(store.exists("missing.jpg"));
+        assertThrows(S3Exception.class, () -> store.exists("denied.jpg"));
+    }
+
+    @Test
+    void testDirectReadUrlIsPresigned() {
+        URI url = store.directReadUrl("parking_spot/ab/abc.jpg", Duration.ofMinutes(10)).orElseThrow();
+
+        assertEquals("localhost", url.getHost());
+        assertEquals("/images/parking_spot/ab/abc.jpg", url.getPath());
+        assertTrue(url.getQuery().contains("X-Amz-Signature="));
+        assertTrue(url.getQuery().contains("X-Amz-Expires=600"));
+        assertTrue(store.localFile("parking_spot/ab/abc.jpg").isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package com.smartparking.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageResizerTest {
+
+    @TempDir
+    Path dir;
+
+    private Path png(int width, int height) throws IOException {
+        Path file = dir.resolve(width + "x" + height + ".png");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file;
+    }
+
+    @Test
+    void testLargeImageIsDecodedNearTheTargetEdge() throws IOException {
+        // A 4000 px photo for a 1024 px rendition used to decode at full size
+        BufferedImage image = ImageResizer.read(png(4000, 3000), 1024);
+
+        assertEquals(1334, image.getWidth());
+        assertEquals(1000, image.getHeight());
+    }
+
+    @Test
+    void testDecodedEdgeStaysBetweenTheTargetAndTwiceIt() throws IOException {
+        for (int edge : new int[] { 300, 599, 600, 1199, 1200, 5000 }) {
+            BufferedImage image = ImageResizer.read(png(edge, 10), 300);
+            assertTrue(image.getWidth() >= 300 && image.getWidth() < 600, edge + " -> " + image.getWidth());
+        }
+        assertEquals(200, ImageResizer.read(png(200, 100), 300).getWidth());
+    }
+
+    @Test
+    void testRenditionFitsTheTargetEdge() throws IOException {
+        Path target = dir.resolve("out.jpg");
+        ImageResizer.writeJpeg(ImageResizer.read(png(4000, 3000), 1024), 1024, target);
+
+        BufferedImage written = ImageIO.read(target.toFile());
+        assertEquals(1024, written.getWidth());
+        assertEquals(768, written.getHeight());
+    }
+}
@@ -0,0 +1,78 @@
+package com.smartparking.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlCacheTest {
+
+    @Test
+    void testEntriesExpireAtTheirOwnTime() {
+        AtomicLong now = new AtomicLong(1000);
+        TtlCache<String, String> cache = new TtlCache<>(10, now::get);
+
+        cache.put("short", "a", 1500);
+        cache.put("long", "b", 5000);
+        cache.put("stale", "c", 1000);
+
+        assertEquals("a", cache.get("short"));
+        assertNull(cache.get("stale"));
+
+        now.set(1500);
+        assertNull(cache.get("short"));
+        assertEquals("b", cache.get("long"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvictedWhenFull() {
+        TtlCache<Integer, String> cache = new TtlCache<>(2, () -> 0L);
+
+        cache.put(1, "one", 100);
+        cache.put(2, "two", 100);
+        cache.get(1);
+        cache.put(3, "three", 100);
+
+        assertEquals(2, cache.size());
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("three", cache.get(3));
+    }
+
+    @Test
+    void testConcurrentReadsAndWritesStayBounded() throws InterruptedException {
+        TtlCache<Integer, Integer> cache = new TtlCache<>(100);
+        long expiry = System.currentTimeMillis() + 60_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+
+        for (int t = 0; t < 16; t++) {
+            pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    int key = random.nextInt(500);
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key, expiry);
+                    } else {
+                        assertEquals(key, value);
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Puts racing past the bound may each add one before evicting
+        assertTrue(cache.size() <= 100 + 16, "size: " + cache.size());
+    }
+}
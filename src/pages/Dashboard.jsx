@@ -317,7 +317,7 @@ function DriverDashboard({ user, navigate }) {
                     >
                       <div className="h-48 w-full overflow-hidden rounded-xl mb-4">
                         <img
-                          src={spot.imageUrls?.[0] ? `http://localhost:8080${spot.imageUrls[0]}` : "https://via.placeholder.com/400x300?text=No+Image"}
+                          src={spot.imageUrls?.[0] ? `http://localhost:8080${spot.thumbnailUrls?.[0] ?? spot.imageUrls[0]}` : "https://via.placeholder.com/400x300?text=No+Image"}
                           alt={spot.name}
                           className="w-full h-full object-cover hover:scale-110 transition-transform duration-500"
                         />